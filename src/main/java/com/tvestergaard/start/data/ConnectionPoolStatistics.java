@@ -0,0 +1,135 @@
+package com.tvestergaard.start.data;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * A snapshot of the state of the connection pool used by an entity manager factory.
+ */
+public class ConnectionPoolStatistics
+{
+
+    /**
+     * The number of connections currently in use.
+     */
+    private final int active;
+
+    /**
+     * The number of connections currently idle in the pool.
+     */
+    private final int idle;
+
+    /**
+     * The number of threads currently waiting for a connection.
+     */
+    private final int waiting;
+
+    /**
+     * The total number of connections in the pool.
+     */
+    private final int total;
+
+    /**
+     * The maximum number of connections in the pool.
+     */
+    private final int maximum;
+
+    /**
+     * Creates a new {@link ConnectionPoolStatistics}.
+     *
+     * @param active  The number of connections currently in use.
+     * @param idle    The number of connections currently idle in the pool.
+     * @param waiting The number of threads currently waiting for a connection.
+     * @param total   The total number of connections in the pool.
+     * @param maximum The maximum number of connections in the pool.
+     */
+    public ConnectionPoolStatistics(int active, int idle, int waiting, int total, int maximum)
+    {
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.total = total;
+        this.maximum = maximum;
+    }
+
+    /**
+     * Returns the statistics of the connection pool used by the provided entity manager factory.
+     *
+     * @param entityManagerFactory The entity manager factory.
+     * @return The statistics, or {@code null} when the entity manager factory does not use a HikariCP connection
+     * pool, or the pool has not been started.
+     */
+    public static ConnectionPoolStatistics of(EntityManagerFactory entityManagerFactory)
+    {
+        ConnectionProvider provider = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                                                          .getServiceRegistry()
+                                                          .getService(ConnectionProvider.class);
+        if (provider == null || !provider.isUnwrappableAs(HikariDataSource.class))
+            return null;
+
+        HikariDataSource dataSource = provider.unwrap(HikariDataSource.class);
+        HikariPoolMXBean pool       = dataSource.getHikariPoolMXBean();
+        if (pool == null)
+            return null;
+
+        return new ConnectionPoolStatistics(pool.getActiveConnections(),
+                                            pool.getIdleConnections(),
+                                            pool.getThreadsAwaitingConnection(),
+                                            pool.getTotalConnections(),
+                                            dataSource.getMaximumPoolSize());
+    }
+
+    /**
+     * Returns the number of connections currently in use.
+     *
+     * @return The number of connections currently in use.
+     */
+    public int getActive()
+    {
+        return active;
+    }
+
+    /**
+     * Returns the number of connections currently idle in the pool.
+     *
+     * @return The number of connections currently idle in the pool.
+     */
+    public int getIdle()
+    {
+        return idle;
+    }
+
+    /**
+     * Returns the number of threads currently waiting for a connection.
+     *
+     * @return The number of threads currently waiting for a connection.
+     */
+    public int getWaiting()
+    {
+        return waiting;
+    }
+
+    /**
+     * Returns the total number of connections in the pool.
+     *
+     * @return The total number of connections in the pool.
+     */
+    public int getTotal()
+    {
+        return total;
+    }
+
+    /**
+     * Returns the maximum number of connections in the pool.
+     *
+     * @return The maximum number of connections in the pool.
+     */
+    public int getMaximum()
+    {
+        return maximum;
+    }
+}
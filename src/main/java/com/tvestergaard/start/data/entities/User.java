@@ -2,6 +2,7 @@ package com.tvestergaard.start.data.entities;
 
 import com.tvestergaard.start.data.repositories.base.RepositoryEntity;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -9,10 +10,16 @@ import java.time.LocalDateTime;
 import static javax.persistence.GenerationType.IDENTITY;
 
 @Entity
-@Table(name = "user_")
+@DynamicUpdate
+@Table(name = "user_", uniqueConstraints = @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email"))
 public class User implements RepositoryEntity<Integer>
 {
 
+    /**
+     * The name of the unique constraint on the email of users.
+     */
+    public static final String EMAIL_CONSTRAINT = "user_email_unique";
+
     @Id
     @GeneratedValue(strategy = IDENTITY)
     private Integer id;
@@ -20,7 +27,7 @@ public class User implements RepositoryEntity<Integer>
     @Column(nullable = false)
     private String name;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
 
     @Column(nullable = false)
@@ -2,11 +2,21 @@ package com.tvestergaard.start.data.repositories;
 
 import com.tvestergaard.start.data.entities.User;
 import com.tvestergaard.start.data.repositories.base.JpaCrudRepository;
+import com.tvestergaard.start.data.repositories.base.cache.Cache;
+import com.tvestergaard.start.data.repositories.base.cache.EntitySnapshot;
+import com.tvestergaard.start.data.repositories.base.queries.RepositoryQuery;
 import com.tvestergaard.start.data.repositories.base.transactions.JpaTransaction;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.NoResultException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * An implementation of the {@code UserRepository} interface, backed by a JPA data source.
@@ -14,6 +24,21 @@ import javax.persistence.NoResultException;
 public class JpaUserRepository extends JpaCrudRepository<Integer, User> implements UserRepository
 {
 
+    /**
+     * The cache in front of {@link #getByEmail(String)}, {@code null} when caching is disabled.
+     */
+    private UserEmailCache emailCache;
+
+    /**
+     * The emails of the users written using this repository since the last commit or rollback.
+     */
+    private final Set<String> writtenEmails = new HashSet<>();
+
+    /**
+     * Whether or not users with unknown emails were written using this repository since the last commit or rollback.
+     */
+    private boolean writtenAllEmails;
+
     /**
      * Creates a new {@link JpaUserRepository}.
      *
@@ -57,16 +82,77 @@ public class JpaUserRepository extends JpaCrudRepository<Integer, User> implemen
     @Override
     public User createUser(String name, String email, String passwordHash)
     {
-        User user = new User(name, email, passwordHash);
-        getEntityManager().persist(user);
-        return user;
+        return persist(new User(name, email, passwordHash));
     }
 
+    /**
+     * Returns the user with the provided email. When an email cache is set, the id of the user is read from the cache,
+     * and the user is retrieved using {@link #get(Comparable)}, so when the user is cached too, the user is returned
+     * without querying the database. Emails known not to belong to any user return {@code null} without querying the
+     * database. Emails are only cached as not belonging to any user when looked up on the primary data source.
+     *
+     * @param email The email fo the user to find and return.
+     * @return The user with the provided email, {@code null} when no such user exists.
+     */
     @Override
     public User getByEmail(String email)
+    {
+        if (email == null)
+            return null;
+
+        boolean cached = emailCache != null && !writtenAllEmails && !writtenEmails.contains(email);
+        if (cached) {
+            if (emailCache.isAbsent(email))
+                return null;
+
+            Integer id = emailCache.getId(email);
+            if (id != null) {
+                User user = get(id);
+                if (user != null && email.equals(user.getEmail()))
+                    return user;
+
+                emailCache.invalidate(email);
+            }
+        }
+
+        Cache<Integer, User> cache           = getCache();
+        long                 generation      = cache == null ? 0 : cache.getGeneration();
+        long                 emailGeneration = emailCache == null ? 0 : emailCache.getGeneration();
+        EntityManager        entityManager   = getLookupEntityManager();
+        User                 user            = queryByEmail(entityManager, email);
+        if (cached) {
+            // A lagging replica may not contain a recently created user, so only the primary proves an email absent.
+            if (user == null && entityManager == getEntityManager())
+                emailCache.putAbsent(email, emailGeneration);
+            else if (user != null)
+                emailCache.put(email, user.getId(), emailGeneration);
+        }
+
+        // The user is cached too, so the following cache hits do not query the database.
+        if (user != null && cache != null && !isWritten(user.getId()))
+            cache.put(user.getId(), EntitySnapshot.copy(user), generation);
+
+        return user;
+    }
+
+    @Override
+    public void forEachEmail(Consumer<String> action)
+    {
+        Query<String> query = getLookupEntityManager()
+                .unwrap(Session.class)
+                .createQuery("SELECT u.email FROM User u", String.class);
+
+        try (ScrollableResults results = query.setFetchSize(RepositoryQuery.DEFAULT_FETCH_SIZE)
+                                              .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next())
+                action.accept((String) results.get(0));
+        }
+    }
+
+    private User queryByEmail(EntityManager entityManager, String email)
     {
         try {
-            return getEntityManager()
+            return entityManager
                     .createQuery("SELECT u FROM User u WHERE u.email = :email", User.class)
                     .setParameter("email", email)
                     .getSingleResult();
@@ -74,4 +160,73 @@ public class JpaUserRepository extends JpaCrudRepository<Integer, User> implemen
             return null;
         }
     }
+
+    /**
+     * Sets the cache in front of {@link #getByEmail(String)}. Since repositories are usually created per unit of work,
+     * the same cache instance should be provided to every user repository.
+     *
+     * @param emailCache The cache, {@code null} to disable caching.
+     */
+    public void setEmailCache(UserEmailCache emailCache)
+    {
+        this.emailCache = emailCache;
+    }
+
+    /**
+     * Returns the cache in front of {@link #getByEmail(String)}.
+     *
+     * @return The cache, {@code null} when caching is disabled.
+     */
+    public UserEmailCache getEmailCache()
+    {
+        return emailCache;
+    }
+
+    /**
+     * Removes the provided user, and the email of the provided user, from the caches.
+     *
+     * @param user The user to remove from the caches.
+     */
+    @Override
+    protected void invalidate(User user)
+    {
+        super.invalidate(user);
+        if (emailCache == null || user == null || user.getEmail() == null)
+            return;
+
+        writtenEmails.add(user.getEmail());
+        emailCache.invalidate(user.getEmail());
+    }
+
+    /**
+     * Removes all the users, and all the emails, from the caches.
+     */
+    @Override
+    protected void invalidateAll()
+    {
+        super.invalidateAll();
+        if (emailCache == null)
+            return;
+
+        writtenAllEmails = true;
+        emailCache.invalidateAll();
+    }
+
+    /**
+     * Called when the transaction is committed or rolled back. Removes the users and emails written in the
+     * transaction from the caches.
+     */
+    @Override
+    protected void completed()
+    {
+        super.completed();
+        if (emailCache != null && writtenAllEmails)
+            emailCache.invalidateAll();
+        else if (emailCache != null)
+            for (String email : writtenEmails)
+                emailCache.invalidate(email);
+
+        writtenEmails.clear();
+        writtenAllEmails = false;
+    }
 }
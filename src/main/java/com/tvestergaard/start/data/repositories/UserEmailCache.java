@@ -0,0 +1,188 @@
+package com.tvestergaard.start.data.repositories;
+
+import com.tvestergaard.start.data.repositories.base.cache.Cache;
+import com.tvestergaard.start.data.repositories.base.cache.LruCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the ids of users mapped to their email, and the emails that do not belong to any user. Emails not belonging
+ * to any user are kept for a shorter time, so the cache cannot hide a newly created user for long.
+ */
+public class UserEmailCache
+{
+
+    /**
+     * The ids of the users mapped to their email.
+     */
+    private final Cache<String, Integer> ids;
+
+    /**
+     * The emails that do not belong to any user.
+     */
+    private final Cache<String, Boolean> absent;
+
+    /**
+     * The generation of the cache, incremented every time emails are removed from the cache.
+     */
+    private long generation;
+
+    /**
+     * Creates a new {@link UserEmailCache}.
+     *
+     * @param ids    The cache of the ids of the users mapped to their email.
+     * @param absent The cache of the emails that do not belong to any user.
+     */
+    public UserEmailCache(Cache<String, Integer> ids, Cache<String, Boolean> absent)
+    {
+        this.ids = ids;
+        this.absent = absent;
+    }
+
+    /**
+     * Creates a new {@link UserEmailCache}.
+     *
+     * @param capacity         The maximum number of ids, and the maximum number of absent emails, in the cache.
+     * @param timeToLive       The time the ids live in the cache, {@code 0} when the ids never expire.
+     * @param absentTimeToLive The time the absent emails live in the cache.
+     * @param unit             The unit of {@code timeToLive} and {@code absentTimeToLive}.
+     */
+    public UserEmailCache(int capacity, long timeToLive, long absentTimeToLive, TimeUnit unit)
+    {
+        this(new LruCache<>(capacity, timeToLive, unit), new LruCache<>(capacity, absentTimeToLive, unit));
+    }
+
+    /**
+     * Returns the id of the user with the provided email.
+     *
+     * @param email The email of the user.
+     * @return The id of the user with the provided email, {@code null} when the id is not cached.
+     */
+    public Integer getId(String email)
+    {
+        return ids.get(email);
+    }
+
+    /**
+     * Checks whether the provided email is known not to belong to any user.
+     *
+     * @param email The email to check.
+     * @return {@code true} when the email is known not to belong to any user.
+     */
+    public boolean isAbsent(String email)
+    {
+        return absent.get(email) != null;
+    }
+
+    /**
+     * Caches the id of the user with the provided email.
+     *
+     * @param email The email of the user.
+     * @param id    The id of the user.
+     */
+    public synchronized void put(String email, Integer id)
+    {
+        absent.invalidate(email);
+        ids.put(email, id);
+    }
+
+    /**
+     * Caches the id of the user with the provided email, unless emails were removed from the cache since the
+     * provided generation was returned by {@link #getGeneration()}. The generation is taken before the user is read,
+     * so a user read before a concurrent write removed its email is not cached.
+     *
+     * @param email      The email of the user.
+     * @param id         The id of the user.
+     * @param generation The generation of the cache taken before the user was read.
+     * @return {@code true} when the id was cached.
+     */
+    public synchronized boolean put(String email, Integer id, long generation)
+    {
+        if (generation != this.generation)
+            return false;
+
+        put(email, id);
+        return true;
+    }
+
+    /**
+     * Caches that the provided email does not belong to any user.
+     *
+     * @param email The email not belonging to any user.
+     */
+    public synchronized void putAbsent(String email)
+    {
+        ids.invalidate(email);
+        absent.put(email, Boolean.TRUE);
+    }
+
+    /**
+     * Caches that the provided email does not belong to any user, unless emails were removed from the cache since the
+     * provided generation was returned by {@link #getGeneration()}. The generation is taken before the email is looked
+     * up, so a lookup racing the creation of a user with the email does not hide the user.
+     *
+     * @param email      The email not belonging to any user.
+     * @param generation The generation of the cache taken before the email was looked up.
+     * @return {@code true} when the email was cached.
+     */
+    public synchronized boolean putAbsent(String email, long generation)
+    {
+        if (generation != this.generation)
+            return false;
+
+        putAbsent(email);
+        return true;
+    }
+
+    /**
+     * Returns the generation of the cache, which is incremented every time emails are removed from the cache.
+     *
+     * @return The generation of the cache.
+     */
+    public synchronized long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Removes everything cached about the provided email.
+     *
+     * @param email The email to remove.
+     */
+    public synchronized void invalidate(String email)
+    {
+        generation++;
+        ids.invalidate(email);
+        absent.invalidate(email);
+    }
+
+    /**
+     * Removes everything in the cache.
+     */
+    public synchronized void invalidateAll()
+    {
+        generation++;
+        ids.invalidateAll();
+        absent.invalidateAll();
+    }
+
+    /**
+     * Returns the cache of the ids of the users mapped to their email.
+     *
+     * @return The cache of the ids of the users mapped to their email.
+     */
+    public Cache<String, Integer> getIds()
+    {
+        return ids;
+    }
+
+    /**
+     * Returns the cache of the emails that do not belong to any user.
+     *
+     * @return The cache of the emails that do not belong to any user.
+     */
+    public Cache<String, Boolean> getAbsent()
+    {
+        return absent;
+    }
+}
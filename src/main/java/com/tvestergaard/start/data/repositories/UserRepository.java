@@ -4,6 +4,8 @@ import com.tvestergaard.start.data.entities.User;
 import com.tvestergaard.start.data.repositories.base.CrudRepository;
 import com.tvestergaard.start.data.repositories.base.transactions.TransactionalRepository;
 
+import java.util.function.Consumer;
+
 /**
  * Represents a data source of users. Defines read and write operations on the data source.
  */
@@ -27,4 +29,12 @@ public interface UserRepository extends CrudRepository<Integer, User>, Transacti
      * @return The user with the provided email, {@code null} when no such user exists.
      */
     User getByEmail(String email);
+
+    /**
+     * Performs the provided action for the email of every user. The emails are streamed from the data source, so the
+     * emails are never held in memory at once.
+     *
+     * @param action The action to perform for the email of every user.
+     */
+    void forEachEmail(Consumer<String> action);
 }
@@ -6,6 +6,7 @@ import com.tvestergaard.start.data.repositories.base.transactions.TransactionalR
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
+import java.util.logging.Logger;
 
 /**
  * An abstract implementation of a repository backed by a JPA data source.
@@ -13,11 +14,24 @@ import javax.persistence.EntityTransaction;
 public class AbstractJpaRepository implements TransactionalRepository
 {
 
+    private static final Logger logger = Logger.getLogger(AbstractJpaRepository.class.getName());
+
     /**
      * The entity manager that operations are performed upon.
      */
     private EntityManager entityManager;
 
+    /**
+     * The transaction the repository performs operations within, {@code null} when the repository was not created
+     * from a transaction.
+     */
+    private final JpaTransaction transaction;
+
+    /**
+     * Whether or not the repository is only used to read entities.
+     */
+    private boolean readOnly;
+
     /**
      * Creates a new {@link AbstractJpaRepository}.
      *
@@ -26,6 +40,7 @@ public class AbstractJpaRepository implements TransactionalRepository
     public AbstractJpaRepository(EntityManager entityManager)
     {
         this.entityManager = entityManager;
+        this.transaction = null;
     }
 
     /**
@@ -47,7 +62,8 @@ public class AbstractJpaRepository implements TransactionalRepository
      */
     public AbstractJpaRepository(JpaTransaction transaction)
     {
-        this(transaction.getEntityManager());
+        this.entityManager = transaction.getEntityManager();
+        this.transaction = transaction;
     }
 
     /**
@@ -56,17 +72,26 @@ public class AbstractJpaRepository implements TransactionalRepository
     @Override
     public void begin()
     {
-        if (!this.entityManager.getTransaction().isActive())
+        if (!this.entityManager.getTransaction().isActive()) {
             this.entityManager.getTransaction().begin();
+            if (readOnly)
+                JpaTransaction.setReadOnlyConnection(entityManager);
+        }
     }
 
     /**
      * Closes the transaction. When the transaction is still active, meaning the result has not yet been committed or
-     * rolled back, the transaction is rolled back.
+     * rolled back, the transaction is rolled back. When the repository was created from a transaction, the transaction
+     * is closed instead, so a transaction shared by other repositories decides whether the entity manager is closed.
      */
     @Override
     public void close()
     {
+        if (this.transaction != null) {
+            this.transaction.close();
+            return;
+        }
+
         EntityTransaction transaction = entityManager.getTransaction();
         if (transaction.isActive())
             transaction.rollback();
@@ -92,6 +117,40 @@ public class AbstractJpaRepository implements TransactionalRepository
         entityManager.getTransaction().rollback();
     }
 
+    /**
+     * Sets whether or not the repository is only used to read entities. Entities read by a read-only repository are
+     * loaded without a snapshot for dirty checking, the entity manager is never flushed automatically, and the
+     * connection used by transactions begun by the repository is marked read-only. Repositories created from a
+     * transaction share the entity manager of the transaction, so the read-only mode of such repositories is set
+     * using {@link JpaTransaction#setReadOnly(boolean)} instead. A mode differing from the mode of the transaction
+     * is not applied to such repositories, which is logged as a warning.
+     *
+     * @param readOnly Whether or not the repository is only used to read entities.
+     */
+    public void setReadOnly(boolean readOnly)
+    {
+        if (transaction != null) {
+            if (readOnly != transaction.isReadOnly())
+                logger.warning(String.format("Read-only mode %b not applied to %s, since it shares a transaction with " +
+                                             "read-only mode %b.", readOnly, getClass().getName(),
+                                             transaction.isReadOnly()));
+            return;
+        }
+
+        this.readOnly = readOnly;
+        JpaTransaction.setReadOnly(entityManager, readOnly);
+    }
+
+    /**
+     * Returns whether or not the repository is only used to read entities.
+     *
+     * @return {@code true} when the repository is only used to read entities.
+     */
+    public boolean isReadOnly()
+    {
+        return transaction != null ? transaction.isReadOnly() : readOnly;
+    }
+
     /**
      * Returns the currently active entity manager instance.
      *
@@ -5,6 +5,7 @@ import com.tvestergaard.start.data.repositories.base.transactions.TransactionalR
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * An interface defining common read and write operations on some {@code RepositoryEntity}.
@@ -24,6 +25,30 @@ public interface CrudRepository<K extends Comparable<K>, E extends RepositoryEnt
      */
     E persist(E entity);
 
+    /**
+     * Persists all the provided entities.
+     *
+     * @param entities The entities to persist.
+     * @return The persisted entities.
+     */
+    List<E> persistAll(List<E> entities);
+
+    /**
+     * Inserts the provided entity, or updates the existing entity when an entity with the same key already exists.
+     *
+     * @param entity The entity to insert or update.
+     * @return The inserted or updated entity.
+     */
+    E upsert(E entity);
+
+    /**
+     * Inserts the provided entities, or updates the existing entities when entities with the same keys already exist.
+     *
+     * @param entities The entities to insert or update.
+     * @return The inserted or updated entities.
+     */
+    List<E> upsertAll(Collection<E> entities);
+
     /**
      * Forces the entity to update.
      *
@@ -63,4 +88,20 @@ public interface CrudRepository<K extends Comparable<K>, E extends RepositoryEnt
      * @return A list with the updated entities.
      */
     List<E> delete(List<E> entities);
+
+    /**
+     * Deletes the entities with keys matching one of the provided keys, without retrieving the entities.
+     *
+     * @param keys The keys of the entities to delete.
+     * @return The number of deleted entities.
+     */
+    int deleteAll(Collection<K> keys);
+
+    /**
+     * Deletes the entities with keys matching one of the provided keys, without retrieving the entities.
+     *
+     * @param keys The keys of the entities to delete.
+     * @return The keys of the entities that existed, and were deleted.
+     */
+    Set<K> deleteExisting(Collection<K> keys);
 }
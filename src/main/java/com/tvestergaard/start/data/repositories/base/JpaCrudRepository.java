@@ -1,13 +1,22 @@
 package com.tvestergaard.start.data.repositories.base;
 
+import com.tvestergaard.start.data.repositories.base.queries.JpaRepositoryQuery;
 import com.tvestergaard.start.data.repositories.base.transactions.JpaTransaction;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * An implementation of {@code ReadRepository}, implementing common read and write operations for some entity type
@@ -21,6 +30,18 @@ public class JpaCrudRepository<K extends Comparable<K>, E extends RepositoryEnti
         implements CrudRepository<K, E>
 {
 
+    /**
+     * The number of entities persisted between flushes by {@link #persistAll(List)}, when the
+     * {@code hibernate.jdbc.batch_size} property is not set.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    /**
+     * Whether or not {@link #delete(Collection)} and {@link #delete(List)} delete the entities using bulk
+     * {@code DELETE} statements, instead of removing every entity using the entity manager.
+     */
+    private boolean bulkDeletes = true;
+
     /**
      * Creates a new {@link JpaCrudRepository} using the provided entity manager.
      *
@@ -65,20 +86,137 @@ public class JpaCrudRepository<K extends Comparable<K>, E extends RepositoryEnti
     @Override public E persist(E entity)
     {
         getEntityManager().persist(entity);
+        invalidate(entity);
         return entity;
     }
 
     /**
-     * Forces the entity to update.
+     * Persists all the provided entities. The entity manager is flushed and cleared after every
+     * {@code hibernate.jdbc.batch_size} entities, so the inserts can be sent to the database in JDBC batches, and the
+     * persistence context does not grow with the number of entities. Note that entities using {@code IDENTITY} ids
+     * are still inserted one statement at a time, and that clearing the entity manager detaches all the entities it
+     * manages, including entities loaded before the call.
+     *
+     * @param entities The entities to persist.
+     * @return The persisted entities.
+     */
+    @Override
+    public List<E> persistAll(List<E> entities)
+    {
+        EntityManager entityManager = this.getEntityManager();
+        int           batchSize     = getBatchSize();
+        int           pending       = 0;
+
+        for (E entity : entities) {
+            entityManager.persist(entity);
+            invalidate(entity);
+            if (++pending == batchSize) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+
+        if (pending > 0)
+            entityManager.flush();
+
+        return entities;
+    }
+
+    /**
+     * Inserts the provided entity, or updates the existing entity when an entity with the same key already exists.
+     *
+     * @param entity The entity to insert or update.
+     * @return The inserted or updated entity.
+     * @see #upsertAll(Collection)
+     */
+    @Override
+    public E upsert(E entity)
+    {
+        List<E> upserted = new ArrayList<>(1);
+        upserted.add(entity);
+        return upsertAll(upserted).get(0);
+    }
+
+    /**
+     * Inserts the provided entities, or updates the existing entities when entities with the same keys already exist.
+     * <p>
+     * On MySQL, the entities are written using a single batch of {@code INSERT ... ON DUPLICATE KEY UPDATE}
+     * statements, which also update the existing entity when the value of a unique column - not just the key - already
+     * exists. The statements bypass the entity manager, so the provided entities are returned unmanaged, with their
+     * keys assigned, and entities already loaded by the entity manager are not refreshed. An entity updating an
+     * existing entity with another key is returned with the key of the updated entity.
+     * <p>
+     * On other databases, entities without keys are persisted, while entities with keys are merged, which costs a
+     * select per entity.
+     *
+     * @param entities The entities to insert or update.
+     * @return The inserted or updated entities, in the order they were provided.
+     */
+    @Override
+    public List<E> upsertAll(Collection<E> entities)
+    {
+        List<E> upserted = new ArrayList<>(entities);
+        if (upserted.isEmpty())
+            return upserted;
+
+        EntityManager  entityManager = this.getEntityManager();
+        MySqlUpsert<E> upsert        = MySqlUpsert.of(entityManager.getEntityManagerFactory()
+                                                                   .unwrap(SessionFactoryImplementor.class), eClass);
+        if (upsert == null) {
+            for (int i = 0; i < upserted.size(); i++) {
+                E entity = upserted.get(i);
+                upserted.set(i, entity.getId() == null ? persist(entity) : update(entity));
+            }
+
+            return upserted;
+        }
+
+        entityManager.flush();
+        for (E entity : upserted)
+            invalidate(entity);
+
+        // An entity may update another row than the row with its key, when the value of a unique column already
+        // exists. The key of that row is assigned to the entity when read back, and invalidated too.
+        upsert.execute(entityManager.unwrap(Session.class), upserted);
+        for (E entity : upserted)
+            invalidate(entity);
+        if (!upsert.readsKeys())
+            invalidateAll();
+
+        return upserted;
+    }
+
+    /**
+     * Returns the number of statements sent to the database in each JDBC batch.
+     *
+     * @return The {@code hibernate.jdbc.batch_size} property, or {@link #DEFAULT_BATCH_SIZE} when the property is not
+     * set.
+     */
+    private int getBatchSize()
+    {
+        Object batchSize = getEntityManager().getEntityManagerFactory().getProperties().get("hibernate.jdbc.batch_size");
+        try {
+            return batchSize == null ? DEFAULT_BATCH_SIZE : Math.max(Integer.parseInt(batchSize.toString()), 1);
+        } catch (NumberFormatException e) {
+            return DEFAULT_BATCH_SIZE;
+        }
+    }
+
+    /**
+     * Forces the entity to update. A detached entity is merged into the entity manager once, while changes to a
+     * managed entity are written when the entity manager is flushed. Entities annotated with
+     * {@code @DynamicUpdate} only write the columns that changed.
      *
      * @param entity The entity to update.
-     * @return The updated entity.
+     * @return The updated entity, managed by the entity manager.
      */
     @Override
     public E update(E entity)
     {
         EntityManager entityManager = this.getEntityManager();
-        return (E) entityManager.merge(entityManager.contains(entity) ? entity : entityManager.merge(entity));
+        invalidate(entity);
+        return entityManager.contains(entity) ? entity : entityManager.merge(entity);
     }
 
     /**
@@ -95,6 +233,7 @@ public class JpaCrudRepository<K extends Comparable<K>, E extends RepositoryEnti
         if (find == null)
             return null;
 
+        invalidate(find);
         entityManager.remove(find);
         return find;
     }
@@ -116,37 +255,173 @@ public class JpaCrudRepository<K extends Comparable<K>, E extends RepositoryEnti
     }
 
     /**
-     * Deletes the entities with keys matching one of the provided keys.
+     * Deletes the entities with keys matching one of the provided keys. When bulk deletes are enabled, the entities
+     * are selected using one query per batch of {@link JpaRepositoryQuery#IN_BATCH_SIZE} keys, and deleted using
+     * {@link #deleteAll(Collection)}.
      *
      * @param keys The keys of the entities to delete.
      * @return The map of the deleted entities. The key of the deleted entity is mapped to its id.
+     * @see #setBulkDeletes(boolean)
      */
     @Override
     public Map<K, E> delete(Collection<K> keys)
     {
         Map<K, E> results = new HashMap<>(keys.size());
-        for (K key : keys) {
-            E deleted = delete(key);
-            results.put(key, deleted);
+        if (!bulkDeletes) {
+            for (K key : keys) {
+                E deleted = delete(key);
+                results.put(key, deleted);
+            }
+
+            return results;
+        }
+
+        for (K key : keys)
+            results.put(key, null);
+        if (results.isEmpty())
+            return results;
+
+        String query = String.format("SELECT e FROM %s e WHERE e.%s IN :keys", eClass.getSimpleName(), kAttribute);
+        for (List<K> batch : JpaRepositoryQuery.partition(results.keySet(), JpaRepositoryQuery.IN_BATCH_SIZE))
+            for (E entity : getEntityManager().createQuery(query, eClass).setParameter("keys", batch).getResultList())
+                results.put(entity.getId(), entity);
+
+        List<K> existing = new ArrayList<>(results.size());
+        for (E entity : results.values()) {
+            if (entity != null) {
+                invalidate(entity);
+                existing.add(entity.getId());
+            }
         }
 
+        deleteAll(existing);
         return results;
     }
 
     /**
-     * Deletes all the provided entities.
+     * Deletes all the provided entities. When bulk deletes are enabled, the entities are deleted using
+     * {@link #deleteAll(Collection)}.
      * <p>
      * The provided list instance is the same as the returned instance.
      *
      * @param entities The entities to delete from the repository.
      * @return A list with the updated entities.
+     * @see #setBulkDeletes(boolean)
      */
     @Override
     public List<E> delete(List<E> entities)
     {
-        for (E entity : entities)
-            delete(entity);
+        if (!bulkDeletes) {
+            for (E entity : entities)
+                delete(entity);
+
+            return entities;
+        }
+
+        List<K> keys = new ArrayList<>(entities.size());
+        for (E entity : entities) {
+            if (entity != null && entity.getId() != null) {
+                invalidate(entity);
+                keys.add(entity.getId());
+            }
+        }
 
+        deleteAll(keys);
         return entities;
     }
+
+    /**
+     * Sets whether or not {@link #delete(Collection)} and {@link #delete(List)} delete the entities using bulk
+     * {@code DELETE} statements. Bulk statements bypass the entity manager, so cascades and lifecycle callbacks are
+     * not applied. Entity types relying on those should disable bulk deletes, so every entity is removed using the
+     * entity manager. Bulk deletes are enabled by default.
+     *
+     * @param bulkDeletes Whether or not to delete the entities using bulk statements.
+     */
+    public void setBulkDeletes(boolean bulkDeletes)
+    {
+        this.bulkDeletes = bulkDeletes;
+    }
+
+    /**
+     * Deletes the entities with keys matching one of the provided keys, using one {@code DELETE} statement per batch
+     * of {@link JpaRepositoryQuery#IN_BATCH_SIZE} keys, instead of retrieving and removing every entity. Pending
+     * changes are flushed before the entities are deleted, and entities already loaded by the entity manager are
+     * detached after they are deleted.
+     *
+     * @param keys The keys of the entities to delete.
+     * @return The number of deleted entities.
+     */
+    @Override
+    public int deleteAll(Collection<K> keys)
+    {
+        if (keys.isEmpty())
+            return 0;
+
+        EntityManager entityManager = this.getEntityManager();
+        String        statement     = String.format("DELETE FROM %s e WHERE e.%s IN :keys",
+                                                    eClass.getSimpleName(),
+                                                    kAttribute);
+
+        entityManager.flush();
+        int deleted = 0;
+        for (List<K> batch : JpaRepositoryQuery.partition(new HashSet<>(keys), JpaRepositoryQuery.IN_BATCH_SIZE)) {
+            for (K key : batch)
+                invalidate(key);
+
+            deleted += entityManager.createQuery(statement).setParameter("keys", batch).executeUpdate();
+            detachLoaded(entityManager, batch);
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Detaches the entities with the provided keys that are loaded by the provided entity manager. Used after bulk
+     * statements, which bypass the entity manager, so the entity manager does not return deleted entities.
+     *
+     * @param entityManager The entity manager to detach the entities from.
+     * @param keys          The keys of the entities to detach.
+     */
+    private void detachLoaded(EntityManager entityManager, Collection<K> keys)
+    {
+        SessionImplementor session   = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister    persister = session.getFactory().getMetamodel().entityPersister(eClass);
+        for (K key : keys) {
+            Object loaded = session.getPersistenceContext()
+                                   .getEntity(session.generateEntityKey((Serializable) key, persister));
+            if (loaded != null)
+                entityManager.detach(loaded);
+        }
+    }
+
+    /**
+     * Deletes the entities with keys matching one of the provided keys. The keys of the existing entities are
+     * selected using one query per batch of {@link JpaRepositoryQuery#IN_BATCH_SIZE} keys, after which the existing
+     * entities are deleted using {@link #deleteAll(Collection)}.
+     *
+     * @param keys The keys of the entities to delete.
+     * @return The keys of the entities that existed, and were deleted.
+     */
+    @Override
+    public Set<K> deleteExisting(Collection<K> keys)
+    {
+        Set<K> existing = new HashSet<>();
+        if (keys.isEmpty())
+            return existing;
+
+        String query = String.format("SELECT e.%s FROM %s e WHERE e.%s IN :keys",
+                                     kAttribute,
+                                     eClass.getSimpleName(),
+                                     kAttribute);
+
+        for (List<K> batch : JpaRepositoryQuery.partition(new HashSet<>(keys), JpaRepositoryQuery.IN_BATCH_SIZE))
+            existing.addAll(getEntityManager()
+                                    .createQuery(query, kClass)
+                                    .setParameter("keys", batch)
+                                    .getResultList());
+
+        deleteAll(existing);
+        return existing;
+    }
 }
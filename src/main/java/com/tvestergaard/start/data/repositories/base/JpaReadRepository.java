@@ -1,5 +1,7 @@
 package com.tvestergaard.start.data.repositories.base;
 
+import com.tvestergaard.start.data.repositories.base.cache.Cache;
+import com.tvestergaard.start.data.repositories.base.cache.EntitySnapshot;
 import com.tvestergaard.start.data.repositories.base.queries.JpaRepositoryQuery;
 import com.tvestergaard.start.data.repositories.base.queries.RepositoryQuery;
 import com.tvestergaard.start.data.repositories.base.transactions.JpaTransaction;
@@ -7,6 +9,7 @@ import com.tvestergaard.start.data.repositories.base.transactions.JpaTransaction
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -37,6 +40,47 @@ public class JpaReadRepository<K extends Comparable<K>, E extends RepositoryEnti
      */
     public final Class<E> eClass;
 
+    /**
+     * The cache placed in front of {@link #get(Comparable)} and {@link #get(Set)}, {@code null} when caching is
+     * disabled.
+     */
+    private Cache<K, E> cache;
+
+    /**
+     * The keys of the entities written using this repository since the last commit or rollback. These entities are
+     * never read from or written to the cache, since the cache would not reflect the uncommitted changes.
+     */
+    private final Set<K> written = new HashSet<>();
+
+    /**
+     * Whether or not entities with unknown keys were written using this repository since the last commit or rollback,
+     * in which case the cache is not used until the transaction completes.
+     */
+    private boolean writtenAll;
+
+    /**
+     * The router deciding whether read operations are performed upon a replica, {@code null} when all operations are
+     * performed upon the primary data source.
+     */
+    private ReplicaRouter replicaRouter;
+
+    /**
+     * The token identifying the writer of the entities written using this repository to the replica router,
+     * {@code null} when the repository has no token.
+     */
+    private Object replicaToken;
+
+    /**
+     * The entity manager connected to the replica, {@code null} when it has not been created yet.
+     */
+    private EntityManager replicaEntityManager;
+
+    /**
+     * Whether or not entities were written using this repository, in which case all the following read operations
+     * are performed upon the primary data source, so the written entities are read back.
+     */
+    private boolean sticky;
+
     /**
      * Creates a new {@link JpaReadRepository} using the provided entity manager.
      *
@@ -86,6 +130,7 @@ public class JpaReadRepository<K extends Comparable<K>, E extends RepositoryEnti
         this.eClass = eClass;
         this.kClass = kClass;
         this.kAttribute = kAttribute;
+        transaction.onCompletion(this::completed);
     }
 
     /**
@@ -96,7 +141,7 @@ public class JpaReadRepository<K extends Comparable<K>, E extends RepositoryEnti
     @Override
     public List<E> getAll()
     {
-        return getEntityManager()
+        return getReadEntityManager()
                 .createQuery("SELECT e FROM " + eClass.getSimpleName() + " e", eClass)
                 .getResultList();
     }
@@ -115,7 +160,7 @@ public class JpaReadRepository<K extends Comparable<K>, E extends RepositoryEnti
         pageSize = Math.max(pageSize, 0);
         pageNumber = Math.max(pageNumber, 1);
 
-        return getEntityManager()
+        return getReadEntityManager()
                 .createQuery("SELECT e FROM " + eClass.getSimpleName() + " e", eClass)
                 .setFirstResult((pageNumber - 1) * pageSize)
                 .setMaxResults(pageSize)
@@ -130,13 +175,15 @@ public class JpaReadRepository<K extends Comparable<K>, E extends RepositoryEnti
     @Override
     public long count()
     {
-        return getEntityManager()
+        return getReadEntityManager()
                 .createQuery("SELECT count(e) FROM " + eClass.getSimpleName() + " e", Long.class)
                 .getSingleResult();
     }
 
     /**
-     * Returns the entity with the provided id.
+     * Returns the entity with the provided id. When a cache is set, the entity may be returned from the cache, in
+     * which case the returned entity is a detached copy. Entities read while the cache is invalidated concurrently
+     * are not cached, since they may have been read before the write causing the invalidation.
      *
      * @param id The id of the entity to return.
      * @return The entity with the provided id, or {@code null} when no such entity exists.
@@ -147,12 +194,26 @@ public class JpaReadRepository<K extends Comparable<K>, E extends RepositoryEnti
         if (id == null)
             return null;
 
-        return getEntityManager().find(eClass, id);
+        if (cache == null || isWritten(id))
+            return getReadEntityManager(id).find(eClass, id);
+
+        E cached = cache.get(id);
+        if (cached != null)
+            return EntitySnapshot.copy(cached);
+
+        long generation = cache.getGeneration();
+        E    found      = getReadEntityManager(id).find(eClass, id);
+        if (found != null)
+            cache.put(id, EntitySnapshot.copy(found), generation);
+
+        return found;
     }
 
     /**
      * Returns all the entities with the provided ids. When an entity with a provided id does not exist, the
-     * {@code null} value is not inserted in the return map.
+     * {@code null} value is not inserted in the return map. Large sets of ids are retrieved in batches of
+     * {@link JpaRepositoryQuery#IN_BATCH_SIZE}. When a cache is set, only the entities missing from the cache are
+     * retrieved, and the entities returned from the cache are detached copies.
      *
      * @param ids The ids of entity to return.
      * @return The returned entities mapped to their id. The returned map is an HashMap, and the order of the returned
@@ -161,16 +222,39 @@ public class JpaReadRepository<K extends Comparable<K>, E extends RepositoryEnti
     @Override
     public Map<K, E> get(Set<K> ids)
     {
-        String query = String.format("SELECT e FROM %s e WHERE e.%s IN :ids", eClass.getSimpleName(), kAttribute);
+        Map<K, E> returnMap = new HashMap<>();
+        if (ids.isEmpty())
+            return returnMap;
 
-        List<E> results = getEntityManager()
-                .createQuery(query, eClass)
-                .setParameter("ids", ids)
-                .getResultList();
+        Set<K> remaining  = ids;
+        long   generation = cache == null ? 0 : cache.getGeneration();
+        if (cache != null) {
+            remaining = new HashSet<>();
+            for (K id : ids) {
+                E cached = isWritten(id) ? null : cache.get(id);
+                if (cached != null)
+                    returnMap.put(id, EntitySnapshot.copy(cached));
+                else
+                    remaining.add(id);
+            }
 
-        Map<K, E> returnMap = new HashMap<>();
-        for (E entity : results)
-            returnMap.put(entity.getId(), entity);
+            if (remaining.isEmpty())
+                return returnMap;
+        }
+
+        String query = String.format("SELECT e FROM %s e WHERE e.%s IN :ids", eClass.getSimpleName(), kAttribute);
+        for (List<K> batch : JpaRepositoryQuery.partition(remaining, JpaRepositoryQuery.IN_BATCH_SIZE)) {
+            List<E> results = getReadEntityManager()
+                    .createQuery(query, eClass)
+                    .setParameter("ids", batch)
+                    .getResultList();
+
+            for (E entity : results) {
+                returnMap.put(entity.getId(), entity);
+                if (cache != null && !isWritten(entity.getId()))
+                    cache.put(entity.getId(), EntitySnapshot.copy(entity), generation);
+            }
+        }
 
         return returnMap;
     }
@@ -184,20 +268,25 @@ public class JpaReadRepository<K extends Comparable<K>, E extends RepositoryEnti
     @Override
     public boolean exists(K id)
     {
-        String query = String.format("SELECT count(e.id) FROM %s e WHERE e.%s = :id",
+        if (id == null)
+            return false;
+
+        String query = String.format("SELECT e.%s FROM %s e WHERE e.%s = :id",
+                                     kAttribute,
                                      eClass.getSimpleName(),
                                      kAttribute);
 
-        Long count = getEntityManager()
-                .createQuery(query, Long.class)
+        return !getReadEntityManager(id)
+                .createQuery(query, kClass)
                 .setParameter("id", id)
-                .getSingleResult();
-
-        return count > 0;
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
     }
 
     /**
-     * Checks that all the provided keys exists.
+     * Checks that all the provided keys exists. Large sets of ids are checked in batches of
+     * {@link JpaRepositoryQuery#IN_BATCH_SIZE}.
      *
      * @param ids The ids to check for.
      * @return {@code true} when all the keys exist in the repository.
@@ -211,12 +300,157 @@ public class JpaReadRepository<K extends Comparable<K>, E extends RepositoryEnti
                                      eClass.getSimpleName(),
                                      kAttribute);
 
-        Long count = getEntityManager()
-                .createQuery(query, Long.class)
-                .setParameter("ids", ids)
-                .getSingleResult();
+        for (List<K> batch : JpaRepositoryQuery.partition(ids, JpaRepositoryQuery.IN_BATCH_SIZE)) {
+            Long count = getReadEntityManager()
+                    .createQuery(query, Long.class)
+                    .setParameter("ids", batch)
+                    .getSingleResult();
+
+            if (count != batch.size())
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Sets the cache placed in front of {@link #get(Comparable)} and {@link #get(Set)}. The cache holds detached
+     * copies of the entities, and a new copy is returned on every cache hit, so changes to returned entities never
+     * reach the cache. Since repositories are usually created per unit of work, the same cache instance should be
+     * provided to every repository of the entity type.
+     *
+     * @param cache The cache, {@code null} to disable caching.
+     */
+    public void setCache(Cache<K, E> cache)
+    {
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the cache placed in front of {@link #get(Comparable)} and {@link #get(Set)}.
+     *
+     * @return The cache, {@code null} when caching is disabled.
+     */
+    public Cache<K, E> getCache()
+    {
+        return cache;
+    }
+
+    /**
+     * Removes the provided entity from the cache. Subclasses caching other information about the entity can override
+     * this method to remove that information too.
+     *
+     * @param entity The entity to remove from the cache.
+     */
+    protected void invalidate(E entity)
+    {
+        if (entity != null)
+            invalidate(entity.getId());
+    }
+
+    /**
+     * Removes the entity with the provided key from the cache. The entity is removed again when the transaction is
+     * committed or rolled back, so entities cached by concurrent readers before the commit are not kept.
+     *
+     * @param id The key of the entity to remove from the cache.
+     */
+    protected void invalidate(K id)
+    {
+        if (id == null)
+            return;
+
+        sticky = true;
+        written.add(id);
+        if (cache != null)
+            cache.invalidate(id);
+    }
+
+    /**
+     * Removes all the entities from the cache. Used after bulk statements writing entities with unknown keys. The
+     * cache is not used until the transaction is committed or rolled back, and the entities are removed again at that
+     * point.
+     */
+    protected void invalidateAll()
+    {
+        sticky = true;
+        writtenAll = true;
+        if (cache != null)
+            cache.invalidateAll();
+    }
+
+    /**
+     * Checks whether or not the entity with the provided key was written using this repository since the last commit
+     * or rollback.
+     *
+     * @param id The key of the entity.
+     * @return {@code true} when the entity may have been written.
+     */
+    protected boolean isWritten(K id)
+    {
+        return writtenAll || written.contains(id);
+    }
+
+    /**
+     * Commits the current transaction, and removes the entities written in the transaction from the cache.
+     */
+    @Override
+    public void commit()
+    {
+        try {
+            super.commit();
+        } finally {
+            completed();
+        }
+    }
+
+    /**
+     * Rolls back the current transaction, and removes the entities written in the transaction from the cache.
+     */
+    @Override
+    public void rollback()
+    {
+        try {
+            super.rollback();
+        } finally {
+            completed();
+        }
+    }
+
+    /**
+     * Closes the repository, and removes the entities written in an uncommitted transaction from the cache.
+     */
+    @Override
+    public void close()
+    {
+        try {
+            super.close();
+        } finally {
+            if (replicaEntityManager != null) {
+                replicaEntityManager.close();
+                replicaEntityManager = null;
+            }
+
+            completed();
+        }
+    }
+
+    /**
+     * Called when the transaction is committed or rolled back. Removes the entities written in the transaction from
+     * the cache, and records the writes with the replica router.
+     */
+    protected void completed()
+    {
+        if (replicaRouter != null && (writtenAll || !written.isEmpty()))
+            replicaRouter.written(replicaToken, eClass, written, writtenAll);
 
-        return count == ids.size();
+        if (cache != null && writtenAll)
+            cache.invalidateAll();
+        else if (cache != null)
+            for (K id : written)
+                cache.invalidate(id);
+
+        written.clear();
+        writtenAll = false;
     }
 
     /**
@@ -227,6 +461,115 @@ public class JpaReadRepository<K extends Comparable<K>, E extends RepositoryEnti
     @Override
     public RepositoryQuery<K, E> query()
     {
-        return new JpaRepositoryQuery<>(getEntityManager(), kClass, kAttribute, eClass);
+        EntityManager            entityManager = getReadEntityManager();
+        JpaRepositoryQuery<K, E> query         = new JpaRepositoryQuery<>(entityManager, kClass, kAttribute, eClass);
+        query.setBulkWriteListener(this::invalidateAll);
+        if (entityManager != getEntityManager())
+            query.setWriteEntityManager(getEntityManager());
+
+        return query;
+    }
+
+    /**
+     * Sets the router deciding whether read operations are performed upon a replica of the primary data source. Read
+     * operations are performed upon the primary data source while a transaction is active, after entities have been
+     * written using this repository, and when the router requires it because the entities were recently written.
+     * Entities read from the replica are detached from the entity manager of the repository.
+     *
+     * @param replicaRouter The router, {@code null} to perform all operations upon the primary data source.
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter)
+    {
+        this.replicaRouter = replicaRouter;
+    }
+
+    /**
+     * Returns the router deciding whether read operations are performed upon a replica of the primary data source.
+     *
+     * @return The router, {@code null} when all operations are performed upon the primary data source.
+     */
+    public ReplicaRouter getReplicaRouter()
+    {
+        return replicaRouter;
+    }
+
+    /**
+     * Sets the token identifying the writer of the entities written using this repository to the replica router. After
+     * a write, the entities of the written type are read from the primary data source by the repositories with the same
+     * token, like the repositories used while handling the same request, while the written entities themselves are
+     * read from the primary data source by all repositories.
+     *
+     * @param replicaToken The token, {@code null} when the repository has no token.
+     */
+    public void setReplicaToken(Object replicaToken)
+    {
+        this.replicaToken = replicaToken;
+    }
+
+    /**
+     * Returns the token identifying the writer of the entities written using this repository to the replica router.
+     *
+     * @return The token, {@code null} when the repository has no token.
+     */
+    public Object getReplicaToken()
+    {
+        return replicaToken;
+    }
+
+    /**
+     * Returns the entity manager that operations reading entities of the type managed by the repository are
+     * performed upon.
+     *
+     * @return The entity manager connected to the replica, or the entity manager connected to the primary data source.
+     */
+    protected EntityManager getReadEntityManager()
+    {
+        if (replicaRouter == null || replicaRouter.requiresPrimary(replicaToken, eClass))
+            return getEntityManager();
+
+        return getReplicaEntityManager();
+    }
+
+    /**
+     * Returns the entity manager that operations looking up entities by attributes other than their key are performed
+     * upon. The router only records the keys of written entities, so such lookups are performed upon the primary data
+     * source while any entity of the type was recently written, by any writer.
+     *
+     * @return The entity manager connected to the replica, or the entity manager connected to the primary data source.
+     */
+    protected EntityManager getLookupEntityManager()
+    {
+        if (replicaRouter != null && replicaRouter.requiresPrimary(eClass))
+            return getEntityManager();
+
+        return getReadEntityManager();
+    }
+
+    /**
+     * Returns the entity manager that operations reading the entity with the provided key are performed upon.
+     *
+     * @param id The key of the entity to read.
+     * @return The entity manager connected to the replica, or the entity manager connected to the primary data source.
+     */
+    protected EntityManager getReadEntityManager(K id)
+    {
+        if (replicaRouter == null || replicaRouter.requiresPrimary(eClass, id))
+            return getEntityManager();
+
+        return getReplicaEntityManager();
+    }
+
+    private EntityManager getReplicaEntityManager()
+    {
+        if (sticky || getEntityManager().getTransaction().isActive())
+            return getEntityManager();
+
+        if (replicaEntityManager == null) {
+            replicaEntityManager = replicaRouter.createEntityManager();
+            if (isReadOnly())
+                JpaTransaction.setReadOnly(replicaEntityManager, true);
+        }
+
+        return replicaEntityManager;
     }
 }
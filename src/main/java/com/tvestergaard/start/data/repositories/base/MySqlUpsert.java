@@ -0,0 +1,312 @@
+package com.tvestergaard.start.data.repositories.base;
+
+import org.hibernate.Session;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.PostInsertIdentifierGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.tuple.GenerationTiming;
+import org.hibernate.tuple.InMemoryValueGenerationStrategy;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserts or updates entities using the MySQL {@code INSERT ... ON DUPLICATE KEY UPDATE} statement. An entity is
+ * updated when its key, or the value of any of its unique columns, already exists. The statements are executed using
+ * JDBC, bypassing the persistence context of the session.
+ *
+ * @param <E> The type of the entities to insert or update.
+ */
+public class MySqlUpsert<E>
+{
+
+    /**
+     * The persister of the entities to insert or update.
+     */
+    private final AbstractEntityPersister persister;
+
+    /**
+     * Whether or not the keys of the entities are generated by the database.
+     */
+    private final boolean generatedKeys;
+
+    /**
+     * Whether or not the key of the row inserted or updated by a statement can be read back using
+     * {@code LAST_INSERT_ID()}, which requires a single integral key column.
+     */
+    private final boolean readsKeys;
+
+    /**
+     * Creates a new {@link MySqlUpsert}.
+     *
+     * @param persister The persister of the entities to insert or update.
+     */
+    public MySqlUpsert(AbstractEntityPersister persister)
+    {
+        this.persister = persister;
+        this.generatedKeys = persister.getIdentifierGenerator() instanceof PostInsertIdentifierGenerator;
+        this.readsKeys = persister.getIdentifierColumnNames().length == 1
+                         && isIntegral(persister.getIdentifierType().getReturnedClass());
+    }
+
+    /**
+     * Returns the upsert of the provided entity type, when the provided session factory uses a MySQL dialect, and the
+     * entity type is stored in a single unversioned table.
+     *
+     * @param sessionFactory The session factory.
+     * @param eClass         The entity type.
+     * @param <E>            The entity type.
+     * @return The upsert, or {@code null} when the entity type cannot be upserted using a MySQL statement.
+     */
+    public static <E> MySqlUpsert<E> of(SessionFactoryImplementor sessionFactory, Class<E> eClass)
+    {
+        if (!(sessionFactory.getJdbcServices().getDialect() instanceof MySQLDialect))
+            return null;
+
+        EntityPersister persister = sessionFactory.getMetamodel().entityPersister(eClass);
+        if (!(persister instanceof AbstractEntityPersister))
+            return null;
+
+        AbstractEntityPersister abstractPersister = (AbstractEntityPersister) persister;
+        if (abstractPersister.isMultiTable() || abstractPersister.isVersioned())
+            return null;
+
+        return new MySqlUpsert<>(abstractPersister);
+    }
+
+    /**
+     * Creates the statement inserting or updating an entity.
+     *
+     * @param includeKey Whether or not the key of the entity is inserted. When the key is not inserted, the key of the
+     *                   inserted or updated row is returned as the generated key of the statement. When the keys can
+     *                   be read back, the key of an updated row is assigned to {@code LAST_INSERT_ID()}, since the
+     *                   updated row may be another row than the row with the inserted key, when the value of a unique
+     *                   column already exists.
+     * @return The statement.
+     */
+    public String createStatement(boolean includeKey)
+    {
+        String[]     keyColumns = persister.getIdentifierColumnNames();
+        List<String> columns    = new ArrayList<>();
+        List<String> updates    = new ArrayList<>();
+
+        if (includeKey)
+            for (String column : keyColumns)
+                columns.add(column);
+
+        if (!includeKey || readsKeys)
+            for (String column : keyColumns)
+                updates.add(String.format("%s = LAST_INSERT_ID(%s)", column, column));
+
+        boolean[]                         insertable = persister.getPropertyInsertability();
+        boolean[]                         updatable  = persister.getPropertyUpdateability();
+        InMemoryValueGenerationStrategy[] generation = persister.getEntityMetamodel().getInMemoryValueGenerationStrategies();
+        for (int i = 0; i < insertable.length; i++) {
+            if (!insertable[i])
+                continue;
+
+            // Values generated on insert only, like creation timestamps, keep their existing value on update.
+            boolean update = updatable[i] && (generation[i] == null
+                                              || generation[i].getGenerationTiming() != GenerationTiming.INSERT);
+            for (String column : persister.getPropertyColumnNames(i)) {
+                columns.add(column);
+                if (update)
+                    updates.add(String.format("%s = VALUES(%s)", column, column));
+            }
+        }
+
+        if (updates.isEmpty())
+            updates.add(String.format("%s = %s", keyColumns[0], keyColumns[0]));
+
+        StringBuilder builder = new StringBuilder("INSERT INTO ");
+        builder.append(persister.getTableName());
+        builder.append(" (");
+        builder.append(String.join(", ", columns));
+        builder.append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++)
+            builder.append(i == 0 ? "?" : ", ?");
+        builder.append(") ON DUPLICATE KEY UPDATE ");
+        builder.append(String.join(", ", updates));
+
+        return builder.toString();
+    }
+
+    /**
+     * Inserts or updates the provided entities. When the keys can be read back, see {@link #readsKeys()}, the entities
+     * are inserted or updated one at a time, and the key of the updated row is assigned to entities updating another
+     * row than the row with their key, because the value of a unique column already exists. Otherwise, the entities
+     * with keys are inserted or updated using a single JDBC batch. The entities without keys are always inserted or
+     * updated one at a time, since the number of generated keys returned by a batch depends on whether its rows were
+     * inserted, updated or left unchanged. The keys of these entities are assigned when the keys are generated by the
+     * database.
+     *
+     * @param session  The session to execute the statements within.
+     * @param entities The entities to insert or update.
+     */
+    public void execute(Session session, List<E> entities)
+    {
+        SessionImplementor implementor = session.unwrap(SessionImplementor.class);
+        List<E>            withKey     = new ArrayList<>();
+        List<E>            withoutKey  = new ArrayList<>();
+        for (E entity : entities) {
+            Serializable key = getIdentifier(entity, implementor);
+            if (key == null && !generatedKeys)
+                setIdentifier(entity, persister.getIdentifierGenerator().generate(implementor, entity), implementor);
+
+            if (key == null && generatedKeys)
+                withoutKey.add(entity);
+            else
+                withKey.add(entity);
+        }
+
+        session.doWork(connection -> {
+            if (!withKey.isEmpty() && readsKeys) {
+                try (PreparedStatement statement = connection.prepareStatement(createStatement(true));
+                     Statement query = connection.createStatement()) {
+                    for (E entity : withKey) {
+                        // An inserted row leaves LAST_INSERT_ID() unchanged, while an updated row assigns its key.
+                        query.execute("SELECT LAST_INSERT_ID(0)");
+                        bind(statement, entity, true, implementor);
+                        statement.executeUpdate();
+                        Serializable key = lastInsertId(query);
+                        if (!key(0).equals(key))
+                            setIdentifier(entity, key, implementor);
+                    }
+                }
+            } else if (!withKey.isEmpty()) {
+                try (PreparedStatement statement = connection.prepareStatement(createStatement(true))) {
+                    for (E entity : withKey) {
+                        bind(statement, entity, true, implementor);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            }
+
+            if (!withoutKey.isEmpty())
+                try (PreparedStatement statement = connection.prepareStatement(createStatement(false),
+                                                                               Statement.RETURN_GENERATED_KEYS)) {
+                    for (E entity : withoutKey) {
+                        bind(statement, entity, false, implementor);
+                        statement.executeUpdate();
+                        setIdentifier(entity, generatedKey(statement), implementor);
+                    }
+                }
+        });
+    }
+
+    /**
+     * Returns the key of the row inserted or updated by the provided statement. An updated row is reported as two
+     * affected rows, so only the first generated key is used. A row left unchanged is reported as no affected rows
+     * and no generated keys, while {@code LAST_INSERT_ID()} is still assigned the key of the row by the statement.
+     *
+     * @param statement The executed statement.
+     * @return The key of the inserted or updated row.
+     * @throws SQLException When the key cannot be read.
+     */
+    private Serializable generatedKey(PreparedStatement statement) throws SQLException
+    {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            if (keys.next())
+                return key(keys.getObject(1));
+        }
+
+        try (Statement query = statement.getConnection().createStatement()) {
+            return lastInsertId(query);
+        }
+    }
+
+    private Serializable lastInsertId(Statement query) throws SQLException
+    {
+        try (ResultSet keys = query.executeQuery("SELECT LAST_INSERT_ID()")) {
+            keys.next();
+            return key(keys.getObject(1));
+        }
+    }
+
+    /**
+     * Returns whether or not the key of the row inserted or updated for an entity is read back, and assigned to the
+     * entity. When the keys are not read back, an entity with a key may update another row than the row with its key,
+     * when the value of a unique column already exists, in which case the entity keeps its own key.
+     *
+     * @return {@code true} when the keys are read back.
+     */
+    public boolean readsKeys()
+    {
+        return readsKeys;
+    }
+
+    private static boolean isIntegral(Class<?> keyClass)
+    {
+        return keyClass == Integer.class || keyClass == Long.class || keyClass == Short.class;
+    }
+
+    // The session is passed as a SharedSessionContractImplementor, selecting the EntityPersister overloads over the
+    // deprecated ClassMetadata overloads taking a SessionImplementor.
+    private Serializable getIdentifier(E entity, SharedSessionContractImplementor session)
+    {
+        return persister.getIdentifier(entity, session);
+    }
+
+    private void setIdentifier(E entity, Serializable key, SharedSessionContractImplementor session)
+    {
+        persister.setIdentifier(entity, key, session);
+    }
+
+    private void bind(PreparedStatement statement, E entity, boolean includeKey, SessionImplementor session)
+            throws SQLException
+    {
+        int index = 1;
+        if (includeKey) {
+            persister.getIdentifierType().nullSafeSet(statement, getIdentifier(entity, session), index, session);
+            index += persister.getIdentifierColumnNames().length;
+        }
+
+        boolean[]                         insertable = persister.getPropertyInsertability();
+        Type[]                            types      = persister.getPropertyTypes();
+        Object[]                          values     = persister.getPropertyValues(entity);
+        InMemoryValueGenerationStrategy[] generation = persister.getEntityMetamodel().getInMemoryValueGenerationStrategies();
+        for (int i = 0; i < insertable.length; i++) {
+            if (!insertable[i])
+                continue;
+
+            Object value = values[i];
+            if (value == null && generation[i] != null && generation[i].getGenerationTiming().includesInsert()
+                    && generation[i].getValueGenerator() != null)
+                value = generation[i].getValueGenerator().generateValue(session, entity);
+
+            types[i].nullSafeSet(statement, value, index, session);
+            index += persister.getPropertyColumnNames(i).length;
+        }
+    }
+
+    /**
+     * Converts the provided generated key to the type of the keys of the entity.
+     *
+     * @param generated The generated key.
+     * @return The converted key.
+     */
+    private Serializable key(Object generated)
+    {
+        Class<?> keyClass = persister.getIdentifierType().getReturnedClass();
+        Number   number   = (Number) generated;
+        if (keyClass == Integer.class)
+            return number.intValue();
+        if (keyClass == Long.class)
+            return number.longValue();
+        if (keyClass == Short.class)
+            return number.shortValue();
+
+        return (Serializable) generated;
+    }
+}
@@ -80,4 +80,12 @@ public interface ReadRepository<K extends Comparable<K>, E extends RepositoryEnt
      * @return The query.
      */
     RepositoryQuery<K, E> query();
+
+    /**
+     * Sets whether or not the repository is only used to read entities. Entities read by a read-only repository are
+     * not checked for changes, so changes to the entities are not written to the data source.
+     *
+     * @param readOnly Whether or not the repository is only used to read entities.
+     */
+    void setReadOnly(boolean readOnly);
 }
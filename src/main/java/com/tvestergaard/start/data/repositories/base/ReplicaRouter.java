@@ -0,0 +1,184 @@
+package com.tvestergaard.start.data.repositories.base;
+
+import com.tvestergaard.start.data.repositories.base.cache.Cache;
+import com.tvestergaard.start.data.repositories.base.cache.LruCache;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Routes the read operations of JPA repositories to a read-only replica of the primary data source. Since the replica
+ * lags behind the primary data source, entities written within the last {@code window} are read from the primary
+ * data source, so clients read their own writes. The router records the writes when the transactions writing them
+ * complete, and is shared by all the repositories reading from the replica.
+ * <p>
+ * The written entities are read from the primary data source by every client, while the other entities of their type
+ * are only read from the primary data source by the writer. The writer is identified by a token, like the unit of work
+ * of a request, so writes of a popular entity type do not route the reads of all clients to the primary data source.
+ */
+public class ReplicaRouter
+{
+
+    /**
+     * The entity manager factory connected to the replica.
+     */
+    private final EntityManagerFactory replica;
+
+    /**
+     * The time after a write, in nanoseconds, during which the written entities are read from the primary data source.
+     */
+    private final long window;
+
+    /**
+     * The clock returning the current time in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The time of the last write of any entity of the entity type, by any writer.
+     */
+    private final Map<Class<?>, Long> entityWrites = new ConcurrentHashMap<>();
+
+    /**
+     * The writer tokens and entity types of the entities written within the window.
+     */
+    private final Cache<List<Object>, Boolean> typeWrites;
+
+    /**
+     * The time of the last write of entities with unknown keys, like bulk statements, of the entity type.
+     */
+    private final Map<Class<?>, Long> bulkWrites = new ConcurrentHashMap<>();
+
+    /**
+     * The entity types and keys of the entities written within the window.
+     */
+    private final Cache<List<Object>, Boolean> keyWrites;
+
+    /**
+     * Creates a new {@link ReplicaRouter}.
+     *
+     * @param replica  The entity manager factory connected to the replica.
+     * @param window   The time after a write during which the written entities are read from the primary data source.
+     * @param unit     The unit of the {@code window}.
+     * @param capacity The maximum number of written keys, and of writers, remembered. Entity types with more written
+     *                 keys within the window are read from the primary data source entirely.
+     * @param clock    The clock returning the current time in nanoseconds.
+     */
+    public ReplicaRouter(EntityManagerFactory replica, long window, TimeUnit unit, int capacity, LongSupplier clock)
+    {
+        this.replica = replica;
+        this.window = unit.toNanos(window);
+        this.clock = clock;
+        this.keyWrites = new LruCache<>(capacity, window, unit, clock);
+        this.typeWrites = new LruCache<>(capacity, window, unit, clock);
+    }
+
+    /**
+     * Creates a new {@link ReplicaRouter}, remembering up to 10000 written keys and writers.
+     *
+     * @param replica The entity manager factory connected to the replica.
+     * @param window  The time after a write during which the written entities are read from the primary data source.
+     * @param unit    The unit of the {@code window}.
+     */
+    public ReplicaRouter(EntityManagerFactory replica, long window, TimeUnit unit)
+    {
+        this(replica, window, unit, 10000, System::nanoTime);
+    }
+
+    /**
+     * Creates a new entity manager connected to the replica.
+     *
+     * @return The new entity manager.
+     */
+    public EntityManager createEntityManager()
+    {
+        return replica.createEntityManager();
+    }
+
+    /**
+     * Records that the provided entities were written to the primary data source.
+     *
+     * @param token       The token identifying the writer, {@code null} for writers without a token.
+     * @param eClass      The type of the written entities.
+     * @param keys        The keys of the written entities.
+     * @param unknownKeys Whether or not entities with unknown keys were written too.
+     */
+    public void written(Object token, Class<?> eClass, Collection<?> keys, boolean unknownKeys)
+    {
+        long now = clock.getAsLong();
+        entityWrites.put(eClass, now);
+        typeWrites.put(Arrays.asList(token, eClass), Boolean.TRUE);
+        if (unknownKeys) {
+            bulkWrites.put(eClass, now);
+            return;
+        }
+
+        long evictions = keyWrites.getStatistics().getEvictions();
+        for (Object key : keys)
+            keyWrites.put(Arrays.asList(eClass, key), Boolean.TRUE);
+
+        // Evicted keys are forgotten before the window ends, so the entire entity type is read from the primary.
+        if (keyWrites.getStatistics().getEvictions() != evictions)
+            bulkWrites.put(eClass, now);
+    }
+
+    /**
+     * Checks whether or not entities of the provided type must be read from the primary data source, because an
+     * entity of the type was written within the window by the writer identified by the provided token.
+     *
+     * @param token  The token identifying the reader, {@code null} for readers without a token.
+     * @param eClass The type of the entities to read.
+     * @return {@code true} when the entities must be read from the primary data source.
+     */
+    public boolean requiresPrimary(Object token, Class<?> eClass)
+    {
+        return typeWrites.get(Arrays.asList(token, eClass)) != null;
+    }
+
+    /**
+     * Checks whether or not entities of the provided type must be looked up by attributes other than their key on the
+     * primary data source, because an entity of the type was written within the window by any writer. Only the keys of
+     * the written entities are recorded, so a lookup by another attribute, like the email of a user signing in right
+     * after signing up, cannot tell whether it targets a written entity.
+     *
+     * @param eClass The type of the entities to look up.
+     * @return {@code true} when the entities must be looked up on the primary data source.
+     */
+    public boolean requiresPrimary(Class<?> eClass)
+    {
+        return isWithinWindow(entityWrites.get(eClass));
+    }
+
+    /**
+     * Checks whether or not the entity with the provided key must be read from the primary data source, because the
+     * entity was written within the window.
+     *
+     * @param eClass The type of the entity to read.
+     * @param key    The key of the entity to read.
+     * @return {@code true} when the entity must be read from the primary data source.
+     */
+    public boolean requiresPrimary(Class<?> eClass, Object key)
+    {
+        return isWithinWindow(bulkWrites.get(eClass)) || keyWrites.get(Arrays.asList(eClass, key)) != null;
+    }
+
+    /**
+     * Closes the entity manager factory connected to the replica.
+     */
+    public void close()
+    {
+        replica.close();
+    }
+
+    private boolean isWithinWindow(Long written)
+    {
+        return written != null && clock.getAsLong() - written < window;
+    }
+}
@@ -0,0 +1,161 @@
+package com.tvestergaard.start.data.repositories.base.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+
+/**
+ * A probabilistic set of values. A Bloom filter can answer that a value was definitely never added, or that the value
+ * might have been added. The chance of a false positive grows when more values than expected are added. Values cannot
+ * be removed from the filter. The filter is safe to use from multiple threads.
+ *
+ * @param <T> The type of the values in the filter.
+ */
+public class BloomFilter<T>
+{
+
+    /**
+     * The bits of the filter.
+     */
+    private final AtomicLongArray bits;
+
+    /**
+     * The number of bits in the filter.
+     */
+    private final long size;
+
+    /**
+     * The number of bits set for every value.
+     */
+    private final int hashes;
+
+    /**
+     * The function computing a 64-bit hash of the values.
+     */
+    private final ToLongFunction<T> hasher;
+
+    /**
+     * Creates a new {@link BloomFilter}.
+     *
+     * @param expectedInsertions The expected number of values added to the filter.
+     * @param falsePositiveRate  The acceptable chance of a false positive, when the expected number of values have
+     *                           been added.
+     * @param hasher             The function computing a 64-bit hash of the values.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate, ToLongFunction<T> hasher)
+    {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+            throw new IllegalArgumentException("The false positive rate must be between 0 and 1.");
+
+        long   n   = Math.max(expectedInsertions, 1);
+        double ln2 = Math.log(2);
+        long   m   = Math.max((long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2)), 64);
+
+        this.bits = new AtomicLongArray((int) Math.min((m + 63) / 64, Integer.MAX_VALUE));
+        this.size = (long) bits.length() * 64;
+        this.hashes = Math.max((int) Math.round((double) size / n * ln2), 1);
+        this.hasher = hasher;
+    }
+
+    /**
+     * Creates a new {@link BloomFilter} of strings.
+     *
+     * @param expectedInsertions The expected number of strings added to the filter.
+     * @param falsePositiveRate  The acceptable chance of a false positive, when the expected number of strings have
+     *                           been added.
+     * @return The new filter.
+     */
+    public static BloomFilter<String> ofStrings(long expectedInsertions, double falsePositiveRate)
+    {
+        return new BloomFilter<>(expectedInsertions, falsePositiveRate, BloomFilter::hash);
+    }
+
+    /**
+     * Adds the provided value to the filter.
+     *
+     * @param value The value to add.
+     */
+    public void put(T value)
+    {
+        long hash   = hasher.applyAsLong(value);
+        int  first  = (int) hash;
+        int  second = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            long bit  = index(first + i * second);
+            int  word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0)
+                if (bits.compareAndSet(word, current, current | mask))
+                    break;
+        }
+    }
+
+    /**
+     * Checks whether the provided value might have been added to the filter.
+     *
+     * @param value The value to check.
+     * @return {@code false} when the value was definitely never added to the filter, {@code true} when the value might
+     * have been added.
+     */
+    public boolean mightContain(T value)
+    {
+        long hash   = hasher.applyAsLong(value);
+        int  first  = (int) hash;
+        int  second = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            long bit = index(first + i * second);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the number of bits in the filter.
+     *
+     * @return The number of bits in the filter.
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of bits set for every value.
+     *
+     * @return The number of bits set for every value.
+     */
+    public int getHashes()
+    {
+        return hashes;
+    }
+
+    private long index(int combined)
+    {
+        return (combined & 0x7fffffffL) % size;
+    }
+
+    /**
+     * Computes a 64-bit hash of the provided string, using FNV-1a over the UTF-8 bytes followed by a finalizing mix.
+     *
+     * @param value The string to hash.
+     * @return The hash.
+     */
+    private static long hash(String value)
+    {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
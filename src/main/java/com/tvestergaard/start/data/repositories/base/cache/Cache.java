@@ -0,0 +1,73 @@
+package com.tvestergaard.start.data.repositories.base.cache;
+
+/**
+ * A cache of values mapped to their keys. Implementations decide when values are evicted from the cache, and must be
+ * safe to use from multiple threads.
+ *
+ * @param <K> The type of the keys in the cache.
+ * @param <V> The type of the values in the cache.
+ */
+public interface Cache<K, V>
+{
+
+    /**
+     * Returns the value mapped to the provided key.
+     *
+     * @param key The key of the value to return.
+     * @return The value mapped to the provided key, {@code null} when no such value is cached.
+     */
+    V get(K key);
+
+    /**
+     * Maps the provided value to the provided key.
+     *
+     * @param key   The key to map the value to.
+     * @param value The value to cache.
+     */
+    void put(K key, V value);
+
+    /**
+     * Maps the provided value to the provided key, unless values were removed from the cache after the provided
+     * {@code generation} was returned by {@link #getGeneration()}. Readers retrieve the generation before reading a
+     * value from the underlying source, so a value read before a concurrent removal is not cached after the removal.
+     *
+     * @param key        The key to map the value to.
+     * @param value      The value to cache.
+     * @param generation The generation of the cache, before the value was read.
+     * @return {@code true} when the value was cached, {@code false} otherwise.
+     */
+    boolean put(K key, V value, long generation);
+
+    /**
+     * Returns the generation of the cache, which changes every time values are removed from the cache.
+     *
+     * @return The generation of the cache.
+     */
+    long getGeneration();
+
+    /**
+     * Removes the value mapped to the provided key.
+     *
+     * @param key The key of the value to remove.
+     */
+    void invalidate(K key);
+
+    /**
+     * Removes all the values in the cache.
+     */
+    void invalidateAll();
+
+    /**
+     * Returns the number of values in the cache.
+     *
+     * @return The number of values in the cache.
+     */
+    int size();
+
+    /**
+     * Returns the statistics of the cache.
+     *
+     * @return The statistics of the cache.
+     */
+    CacheStatistics getStatistics();
+}
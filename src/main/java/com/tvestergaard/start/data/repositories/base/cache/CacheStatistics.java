@@ -0,0 +1,122 @@
+package com.tvestergaard.start.data.repositories.base.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the hits, misses and evictions of a {@link Cache}.
+ */
+public class CacheStatistics
+{
+
+    /**
+     * The number of lookups that found a value.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The number of lookups that did not find a value.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The number of values removed to make room for other values.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * The number of values removed because they expired.
+     */
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Records a lookup that found a value.
+     */
+    public void recordHit()
+    {
+        hits.increment();
+    }
+
+    /**
+     * Records a lookup that did not find a value.
+     */
+    public void recordMiss()
+    {
+        misses.increment();
+    }
+
+    /**
+     * Records a value removed to make room for other values.
+     */
+    public void recordEviction()
+    {
+        evictions.increment();
+    }
+
+    /**
+     * Records a value removed because it expired.
+     */
+    public void recordExpiration()
+    {
+        expirations.increment();
+    }
+
+    /**
+     * Returns the number of lookups that found a value.
+     *
+     * @return The number of lookups that found a value.
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that did not find a value.
+     *
+     * @return The number of lookups that did not find a value.
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of values removed to make room for other values.
+     *
+     * @return The number of values removed to make room for other values.
+     */
+    public long getEvictions()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of values removed because they expired.
+     *
+     * @return The number of values removed because they expired.
+     */
+    public long getExpirations()
+    {
+        return expirations.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups that found a value.
+     *
+     * @return The fraction of lookups that found a value, {@code 0} when no lookups were made.
+     */
+    public double getHitRate()
+    {
+        long hits    = getHits();
+        long lookups = hits + getMisses();
+
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("CacheStatistics{hits=%d, misses=%d, evictions=%d, expirations=%d}",
+                             getHits(), getMisses(), getEvictions(), getExpirations());
+    }
+}
@@ -0,0 +1,67 @@
+package com.tvestergaard.start.data.repositories.base.cache;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates shallow copies of entities, so cached entities cannot be modified through the instances handed to callers.
+ * The copied entities must declare a no-argument constructor, which JPA entities are required to.
+ */
+public class EntitySnapshot
+{
+
+    /**
+     * The copied fields mapped to the type declaring them.
+     */
+    private static final Map<Class<?>, List<Field>> fields = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a shallow copy of the provided entity.
+     *
+     * @param entity The entity to copy.
+     * @param <E>    The type of the entity.
+     * @return The copy, {@code null} when the provided entity is {@code null}.
+     * @throws IllegalArgumentException When the entity cannot be copied.
+     */
+    public static <E> E copy(E entity)
+    {
+        if (entity == null)
+            return null;
+
+        // The runtime class of the entity is E or a subtype of E, so instances of it are instances of E.
+        @SuppressWarnings("unchecked")
+        Class<E> type = (Class<E>) entity.getClass();
+        try {
+            Constructor<E> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            E copy = constructor.newInstance();
+            for (Field field : fields.computeIfAbsent(type, EntitySnapshot::resolve))
+                field.set(copy, field.get(entity));
+
+            return copy;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Could not copy entity of type " + type.getName(), e);
+        }
+    }
+
+    private static List<Field> resolve(Class<?> type)
+    {
+        List<Field> resolved = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()))
+                    continue;
+
+                field.setAccessible(true);
+                resolved.add(field);
+            }
+        }
+
+        return resolved;
+    }
+}
@@ -0,0 +1,224 @@
+package com.tvestergaard.start.data.repositories.base.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link Cache} holding a bounded number of values. When the cache is full, the least recently used value is
+ * evicted. Values can optionally expire a fixed time after they were cached.
+ *
+ * @param <K> The type of the keys in the cache.
+ * @param <V> The type of the values in the cache.
+ */
+public class LruCache<K, V> implements Cache<K, V>
+{
+
+    /**
+     * The cached entries, ordered from the least to the most recently used.
+     */
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    /**
+     * The maximum number of values in the cache.
+     */
+    private final int capacity;
+
+    /**
+     * The number of nanoseconds values live in the cache, {@code 0} when values never expire.
+     */
+    private final long timeToLive;
+
+    /**
+     * The clock returning the current time in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The statistics of the cache.
+     */
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    /**
+     * The generation of the cache, incremented every time values are removed from the cache.
+     */
+    private long generation;
+
+    /**
+     * Creates a new {@link LruCache}.
+     *
+     * @param capacity   The maximum number of values in the cache.
+     * @param timeToLive The time values live in the cache, {@code 0} when values never expire.
+     * @param unit       The unit of the {@code timeToLive}.
+     * @param clock      The clock returning the current time in nanoseconds.
+     */
+    public LruCache(int capacity, long timeToLive, TimeUnit unit, LongSupplier clock)
+    {
+        this.capacity = Math.max(capacity, 1);
+        this.timeToLive = unit.toNanos(Math.max(timeToLive, 0));
+        this.clock = clock;
+        this.entries = new Entries<>(this.capacity, statistics);
+    }
+
+    /**
+     * Creates a new {@link LruCache}.
+     *
+     * @param capacity   The maximum number of values in the cache.
+     * @param timeToLive The time values live in the cache, {@code 0} when values never expire.
+     * @param unit       The unit of the {@code timeToLive}.
+     */
+    public LruCache(int capacity, long timeToLive, TimeUnit unit)
+    {
+        this(capacity, timeToLive, unit, System::nanoTime);
+    }
+
+    /**
+     * Creates a new {@link LruCache}, where values never expire.
+     *
+     * @param capacity The maximum number of values in the cache.
+     */
+    public LruCache(int capacity)
+    {
+        this(capacity, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized V get(K key)
+    {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            statistics.recordMiss();
+            return null;
+        }
+
+        if (isExpired(entry)) {
+            entries.remove(key);
+            statistics.recordExpiration();
+            statistics.recordMiss();
+            return null;
+        }
+
+        statistics.recordHit();
+        return entry.value;
+    }
+
+    @Override
+    public synchronized void put(K key, V value)
+    {
+        if (value == null) {
+            entries.remove(key);
+            return;
+        }
+
+        entries.put(key, new Entry<>(value, clock.getAsLong()));
+    }
+
+    @Override
+    public synchronized boolean put(K key, V value, long generation)
+    {
+        if (generation != this.generation)
+            return false;
+
+        put(key, value);
+        return true;
+    }
+
+    @Override
+    public synchronized long getGeneration()
+    {
+        return generation;
+    }
+
+    @Override
+    public synchronized void invalidate(K key)
+    {
+        generation++;
+        entries.remove(key);
+    }
+
+    @Override
+    public synchronized void invalidateAll()
+    {
+        generation++;
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of values in the cache, after removing the expired values.
+     *
+     * @return The number of values in the cache.
+     */
+    @Override
+    public synchronized int size()
+    {
+        if (timeToLive > 0) {
+            Iterator<Entry<V>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (isExpired(iterator.next())) {
+                    iterator.remove();
+                    statistics.recordExpiration();
+                }
+            }
+        }
+
+        return entries.size();
+    }
+
+    @Override
+    public CacheStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    private boolean isExpired(Entry<V> entry)
+    {
+        return timeToLive > 0 && clock.getAsLong() - entry.created >= timeToLive;
+    }
+
+    /**
+     * A value in the cache, and the time it was cached.
+     */
+    private static class Entry<V>
+    {
+
+        private final V    value;
+        private final long created;
+
+        private Entry(V value, long created)
+        {
+            this.value = value;
+            this.created = created;
+        }
+    }
+
+    /**
+     * The entries of the cache in access order, evicting the least recently used entry when the capacity is exceeded.
+     */
+    private static class Entries<K, V> extends LinkedHashMap<K, Entry<V>>
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int                       capacity;
+        private final transient CacheStatistics statistics;
+
+        private Entries(int capacity, CacheStatistics statistics)
+        {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.statistics = statistics;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest)
+        {
+            if (size() <= capacity)
+                return false;
+
+            statistics.recordEviction();
+            return true;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.tvestergaard.start.data.repositories.base.queries.tree.Direction;
 import com.tvestergaard.start.data.repositories.base.queries.tree.Operation;
 import com.tvestergaard.start.data.repositories.base.queries.tree.Order;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -34,6 +35,11 @@ public abstract class AbstractRepositoryQuery<K extends Comparable<K>, E extends
      */
     protected int limit;
 
+    /**
+     * The cursor the query is positioned after. {@code null} when the query is not positioned using a cursor.
+     */
+    protected Cursor after;
+
     /**
      * Creates a new {@link AbstractRepositoryQuery} with predefined where and order clauses.
      *
@@ -172,6 +178,14 @@ public abstract class AbstractRepositoryQuery<K extends Comparable<K>, E extends
         return this;
     }
 
+    @Override
+    public RepositoryQuery<K, E> after(Cursor cursor)
+    {
+        this.after = cursor;
+
+        return this;
+    }
+
     @Override
     public RepositoryQuery<K, E> skip(int n)
     {
@@ -187,4 +201,70 @@ public abstract class AbstractRepositoryQuery<K extends Comparable<K>, E extends
 
         return this;
     }
+
+    /**
+     * Returns the order clauses used when the query is positioned using a cursor. The declared order clauses are
+     * followed by the key attribute, unless the key attribute is already ordered.
+     *
+     * @param kAttribute The key attribute of the entity queried.
+     * @return The order clauses used when the query is positioned using a cursor.
+     */
+    protected List<Order> keysetOrders(String kAttribute)
+    {
+        List<Order> keyset = new ArrayList<>(orders);
+        for (Order order : orders)
+            if (order.attribute.equals(kAttribute))
+                return keyset;
+
+        keyset.add(Order.asc(kAttribute));
+        return keyset;
+    }
+
+    /**
+     * Creates the conditional that constrains the results to the results following the provided cursor. For the order
+     * clauses {@code a, b} the conditional has the form {@code a > :a OR (a = :a AND b > :b)}.
+     *
+     * @param keyset The order clauses used when the query is positioned using a cursor.
+     * @param cursor The cursor to create the conditional from.
+     * @return The resulting conditional.
+     * @throws RepositoryQueryException When the cursor does not match the provided order clauses.
+     */
+    protected Conditional seek(List<Order> keyset, Cursor cursor)
+    {
+        Object[] values = cursor.getValues();
+        if (values.length != keyset.size())
+            throw new RepositoryQueryException("The cursor does not match the order of the query.");
+
+        Conditional result = null;
+        for (int i = keyset.size() - 1; i >= 0; i--) {
+            Order          order = keyset.get(i);
+            Operation.Type type  = order.direction == Direction.DESC ? Operation.Type.LT : Operation.Type.GT;
+            Conditional    past  = Conditional.op(new Operation(order.attribute, type, arguments(values[i])));
+            if (result == null) {
+                result = past;
+                continue;
+            }
+
+            Conditional equal = Conditional.op(new Operation(order.attribute, Operation.Type.EQ, arguments(values[i])));
+            result = Conditional.or(past, Conditional.and(equal, result));
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates the cursor positioned after the provided entity.
+     *
+     * @param entity The entity to position the cursor after.
+     * @param keyset The order clauses used when the query is positioned using a cursor.
+     * @return The resulting cursor.
+     */
+    protected Cursor cursor(E entity, List<Order> keyset)
+    {
+        Object[] values = new Object[keyset.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = AttributeAccessor.get(entity, keyset.get(i).attribute);
+
+        return Cursor.of(values);
+    }
 }
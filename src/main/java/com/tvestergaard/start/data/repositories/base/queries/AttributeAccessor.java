@@ -0,0 +1,133 @@
+package com.tvestergaard.start.data.repositories.base.queries;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Reads the values of named attributes from entities. The fields backing the attributes are resolved once per entity
+ * type and attribute, and reused on subsequent reads.
+ */
+public class AttributeAccessor
+{
+
+    /**
+     * The resolved fields mapped to the entity type and attribute name they were resolved from.
+     */
+    private static final Map<Class<?>, Map<String, Field>> fields = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the value of the provided attribute on the provided entity. Nested attributes can be accessed using the
+     * {@code .} separator.
+     *
+     * @param entity    The entity to read the attribute from.
+     * @param attribute The name of the attribute to read.
+     * @return The value of the attribute.
+     * @throws RepositoryQueryException When the attribute does not exist on the entity.
+     */
+    public static Object get(Object entity, String attribute)
+    {
+        Object current = entity;
+        for (String part : attribute.split("\\.")) {
+            if (current == null)
+                return null;
+
+            try {
+                current = field(current.getClass(), part).get(current);
+            } catch (IllegalAccessException e) {
+                throw new RepositoryQueryException("Could not access attribute " + attribute, e);
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Returns a function reading the value of the provided attribute from the entities provided to the function. The
+     * attribute path is parsed once, so the returned function can be reused for any number of entities.
+     *
+     * @param attribute The name of the attribute to read. Nested attributes can be accessed using the {@code .}
+     *                  separator.
+     * @return The function reading the value of the provided attribute.
+     */
+    public static Function<Object, Object> getter(String attribute)
+    {
+        String[] parts = attribute.split("\\.");
+        if (parts.length == 1)
+            return entity -> entity == null ? null : read(entity, attribute);
+
+        return entity -> {
+            Object current = entity;
+            for (String part : parts) {
+                if (current == null)
+                    return null;
+                current = read(current, part);
+            }
+
+            return current;
+        };
+    }
+
+    private static Object read(Object entity, String attribute)
+    {
+        try {
+            return field(entity.getClass(), attribute).get(entity);
+        } catch (IllegalAccessException e) {
+            throw new RepositoryQueryException("Could not access attribute " + attribute, e);
+        }
+    }
+
+    /**
+     * Sets the value of the provided attribute on the provided entity.
+     *
+     * @param entity    The entity to set the attribute on.
+     * @param attribute The name of the attribute to set.
+     * @param value     The new value of the attribute.
+     * @throws RepositoryQueryException When the attribute does not exist on the entity.
+     */
+    public static void set(Object entity, String attribute, Object value)
+    {
+        try {
+            field(entity.getClass(), attribute).set(entity, value);
+        } catch (IllegalAccessException | IllegalArgumentException e) {
+            throw new RepositoryQueryException("Could not set attribute " + attribute, e);
+        }
+    }
+
+    /**
+     * Returns the field backing the provided attribute on the provided type.
+     *
+     * @param type      The type declaring the attribute.
+     * @param attribute The name of the attribute.
+     * @return The field backing the attribute.
+     * @throws RepositoryQueryException When the attribute does not exist on the type.
+     */
+    public static Field field(Class<?> type, String attribute)
+    {
+        Map<String, Field> typeFields = fields.computeIfAbsent(type, c -> new ConcurrentHashMap<>());
+        Field              field      = typeFields.get(attribute);
+        if (field != null)
+            return field;
+
+        field = resolve(type, attribute);
+        typeFields.put(attribute, field);
+        return field;
+    }
+
+    private static Field resolve(Class<?> type, String attribute)
+    {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                Field field = c.getDeclaredField(attribute);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                // Continue with the superclass
+            }
+        }
+
+        throw new RepositoryQueryException(
+                String.format("Unknown attribute %s on %s.", attribute, type.getSimpleName()));
+    }
+}
@@ -0,0 +1,840 @@
+package com.tvestergaard.start.data.repositories.base.queries;
+
+import com.tvestergaard.start.data.repositories.base.RepositoryEntity;
+import com.tvestergaard.start.data.repositories.base.queries.tree.Aggregate;
+import com.tvestergaard.start.data.repositories.base.queries.tree.Conditional;
+import com.tvestergaard.start.data.repositories.base.queries.tree.Direction;
+import com.tvestergaard.start.data.repositories.base.queries.tree.Operation;
+import com.tvestergaard.start.data.repositories.base.queries.tree.Order;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A {@link RepositoryQuery} evaluated against the entities in a collection. The where conditionals and order clauses
+ * are compiled into predicates and comparators once per execution, and then applied to the entities in the collection.
+ * <p>
+ * Comparisons follow the semantics of SQL: a comparison involving {@code null} never matches, numbers of different
+ * types are compared by value, and {@code like} patterns match anywhere in the value. When ordering, {@code null}
+ * values are placed before all other values. When the query is not ordered, the results are returned in the
+ * iteration order of the collection.
+ *
+ * @param <K> The key of the type of the entity handled by this query.
+ * @param <E> The type of the entity handled by this query.
+ */
+public class CollectionRepositoryQuery<K extends Comparable<K>, E extends RepositoryEntity<K>>
+        extends AbstractRepositoryQuery<K, E>
+{
+
+    /**
+     * The entities the query is evaluated against.
+     */
+    private final Collection<E> source;
+
+    /**
+     * The key attributes of the entity queried.
+     */
+    private final String kAttribute;
+
+    /**
+     * Creates a new {@link CollectionRepositoryQuery} with predefined where and order clauses.
+     *
+     * @param source     The entities the query is evaluated against.
+     * @param kAttribute The key attributes of the entity queried.
+     * @param wheres     The where conditionals to register with the query.
+     * @param orders     The order clauses to register with the query.
+     * @param skip       The number of results the query should skip.
+     * @param limit      The maximum number of results to return.
+     */
+    public CollectionRepositoryQuery(
+            Collection<E> source,
+            String kAttribute,
+            List<Conditional> wheres,
+            List<Order> orders,
+            int skip,
+            int limit)
+    {
+        super(wheres, orders, skip, limit);
+        this.source = source;
+        this.kAttribute = kAttribute;
+    }
+
+    /**
+     * Creates a new {@link CollectionRepositoryQuery}.
+     *
+     * @param source     The entities the query is evaluated against.
+     * @param kAttribute The key attributes of the entity queried.
+     */
+    public CollectionRepositoryQuery(Collection<E> source, String kAttribute)
+    {
+        this(source, kAttribute, new ArrayList<>(), new ArrayList<>(), 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<E> get()
+    {
+        return slice(execute(true), this.skip, this.limit);
+    }
+
+    /**
+     * Executes the query, returning the results as a stream. As the results are already held in memory, the
+     * {@code fetchSize} is ignored.
+     *
+     * @param fetchSize The number of results to fetch from the underlying data source at a time.
+     * @return The stream of the results in the query.
+     */
+    @Override
+    public Stream<E> stream(int fetchSize)
+    {
+        return get().stream();
+    }
+
+    @Override
+    public List<E> getPage(int pageSize, int pageNumber)
+    {
+        pageSize = Math.max(pageSize, 1);
+        pageNumber = Math.max(pageNumber, 1);
+
+        long skip = this.skip + ((long) pageSize * (pageNumber - 1));
+        return slice(execute(true), (int) Math.min(skip, Integer.MAX_VALUE), Math.min(pageSize, this.limit));
+    }
+
+    @Override
+    public CursorPage<E> getPageAfter(int pageSize, Cursor cursor)
+    {
+        pageSize = Math.min(Math.max(pageSize, 1), Integer.MAX_VALUE - 1);
+        if (this.limit < 1)
+            return new CursorPage<>(new ArrayList<>(0), null);
+
+        CollectionRepositoryQuery<K, E> query = (CollectionRepositoryQuery<K, E>) copy();
+        query.after = cursor == null ? Cursor.first() : cursor;
+
+        pageSize = Math.min(pageSize, this.limit);
+        List<E> results = slice(query.execute(true), 0, pageSize + 1);
+        if (results.size() <= pageSize)
+            return new CursorPage<>(results, null);
+
+        results = new ArrayList<>(results.subList(0, pageSize));
+        return new CursorPage<>(results, cursor(results.get(pageSize - 1), keysetOrders(kAttribute)));
+    }
+
+    @Override
+    public List<E> getFirst(int n)
+    {
+        return slice(execute(true), this.skip, Math.min(n, this.limit));
+    }
+
+    @Override
+    public E getAt(int n)
+    {
+        List<E> results = slice(execute(true), this.skip + Math.max(n, 0), Math.min(1, this.limit));
+
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    @Override
+    public long count()
+    {
+        return execute(false).size();
+    }
+
+    @Override
+    public boolean exists()
+    {
+        Predicate<E> predicate = compileWheres(effectiveWheres());
+        for (E entity : source)
+            if (predicate.test(entity))
+                return true;
+
+        return false;
+    }
+
+    @Override
+    public boolean contains(K key)
+    {
+        return copy().eq(kAttribute, key).exists();
+    }
+
+    @Override
+    public <V> V max(String attribute, Class<V> vClass)
+    {
+        return vClass.cast(aggregate(Aggregate.MAX, execute(false), attribute, vClass));
+    }
+
+    @Override
+    public <V> V min(String attribute, Class<V> vClass)
+    {
+        return vClass.cast(aggregate(Aggregate.MIN, execute(false), attribute, vClass));
+    }
+
+    @Override
+    public <V> V sum(String attribute, Class<V> vClass)
+    {
+        return vClass.cast(aggregate(Aggregate.SUM, execute(false), attribute, vClass));
+    }
+
+    @Override
+    public Double avg(String attribute)
+    {
+        return (Double) aggregate(Aggregate.AVG, execute(false), attribute, Double.class);
+    }
+
+    @Override
+    public long countDistinct(String attribute)
+    {
+        return (Long) aggregate(Aggregate.COUNT_DISTINCT, execute(false), attribute, Long.class);
+    }
+
+    @Override
+    public <G> Map<G, Long> groupBy(String attribute, Class<G> gClass)
+    {
+        return groupBy(attribute, gClass, Aggregate.COUNT, kAttribute, Long.class);
+    }
+
+    @Override
+    public <G, V> Map<G, V> groupBy(String attribute, Class<G> gClass, Aggregate aggregate, String aggregated, Class<V> vClass)
+    {
+        Function<Object, Object> getter = AttributeAccessor.getter(attribute);
+        Map<Object, List<E>>     groups = new TreeMap<>(CollectionRepositoryQuery::compareNullsFirst);
+        for (E entity : execute(false))
+            groups.computeIfAbsent(getter.apply(entity), group -> new ArrayList<>()).add(entity);
+
+        Map<G, V> results = new LinkedHashMap<>();
+        for (Map.Entry<Object, List<E>> group : groups.entrySet())
+            results.put(gClass.cast(group.getKey()),
+                        vClass.cast(aggregate(aggregate, group.getValue(), aggregated, vClass)));
+
+        return results;
+    }
+
+    @Override
+    public <V> List<V> getAttributes(String attribute, Class<V> vClass)
+    {
+        Function<Object, Object> getter  = AttributeAccessor.getter(attribute);
+        List<E>                  results = execute(true);
+        List<V>                  values  = new ArrayList<>(results.size());
+        for (E entity : results)
+            values.add(vClass.cast(getter.apply(entity)));
+
+        return values;
+    }
+
+    @Override
+    public List<Row> project(String... attributes)
+    {
+        if (attributes.length == 0)
+            throw new IllegalArgumentException("At least one attribute must be projected.");
+
+        List<Function<Object, Object>> getters = getters(attributes);
+        List<E>                        results = get();
+        List<Row>                      rows    = new ArrayList<>(results.size());
+        for (E entity : results)
+            rows.add(new Row(attributes, values(getters, entity)));
+
+        return rows;
+    }
+
+    @Override
+    public <V> List<V> project(Class<V> vClass, String... attributes)
+    {
+        if (attributes.length == 0)
+            throw new IllegalArgumentException("At least one attribute must be projected.");
+
+        List<Function<Object, Object>> getters = getters(attributes);
+        List<E>                        results = get();
+        List<V>                        mapped  = new ArrayList<>(results.size());
+        for (E entity : results)
+            mapped.add(construct(vClass, values(getters, entity)));
+
+        return mapped;
+    }
+
+    @Override
+    public List<K> getKeys()
+    {
+        List<E> results = execute(true);
+        List<K> keys    = new ArrayList<>(results.size());
+        for (E entity : results)
+            keys.add(entity.getId());
+
+        return keys;
+    }
+
+    /**
+     * Removes all the entities matching the where conditionals of the query from the source collection.
+     *
+     * @return The number of removed entities.
+     * @throws UnsupportedOperationException When the source collection cannot be modified.
+     */
+    @Override
+    public int delete()
+    {
+        Set<E> matched = Collections.newSetFromMap(new IdentityHashMap<>());
+        matched.addAll(get());
+        if (!matched.isEmpty())
+            source.removeIf(matched::contains);
+
+        return matched.size();
+    }
+
+    /**
+     * Assigns the provided values to the provided attributes of all the entities matching the where conditionals of
+     * the query.
+     *
+     * @param assignments The new values mapped to the attributes to assign them to.
+     * @return The number of updated entities.
+     * @throws IllegalArgumentException When no assignments are provided, or when the key attribute is assigned.
+     */
+    @Override
+    public int update(Map<String, Object> assignments)
+    {
+        if (assignments.isEmpty())
+            throw new IllegalArgumentException("At least one attribute must be assigned.");
+        if (assignments.containsKey(kAttribute))
+            throw new IllegalArgumentException("The key attribute cannot be updated.");
+
+        List<E> matched = get();
+        for (E entity : matched)
+            for (Map.Entry<String, Object> assignment : assignments.entrySet())
+                AttributeAccessor.set(entity, assignment.getKey(), assignment.getValue());
+
+        return matched.size();
+    }
+
+    @Override
+    public boolean chunk(int chunkSize, Chunker<E> chunker)
+    {
+        StoppingRunnable stopper = new StoppingRunnable();
+        Cursor           cursor  = this.after == null ? Cursor.first() : this.after;
+        if (this.skip > 0) {
+            CollectionRepositoryQuery<K, E> query = (CollectionRepositoryQuery<K, E>) copy();
+            query.after = cursor;
+            List<E> skipped = slice(query.execute(true), this.skip - 1, 1);
+            if (skipped.isEmpty())
+                return true;
+
+            cursor = cursor(skipped.get(0), keysetOrders(kAttribute));
+        }
+
+        for (int chunkNumber = 1; !stopper.stopped; chunkNumber++) {
+            CursorPage<E> page = getPageAfter(chunkSize, cursor);
+            if (page.getResults().isEmpty())
+                return true;
+
+            chunker.handle(new ListChunk<>(chunkNumber - 1, page.getResults()), stopper);
+            if (!page.hasNext())
+                return !stopper.stopped;
+
+            cursor = page.getNext();
+        }
+
+        return false;
+    }
+
+    @Override
+    public RepositoryQuery<K, E> copy()
+    {
+        CollectionRepositoryQuery<K, E> copy = new CollectionRepositoryQuery<>(source,
+                                                                               kAttribute,
+                                                                               new ArrayList<>(wheres),
+                                                                               new ArrayList<>(orders),
+                                                                               this.skip,
+                                                                               this.limit);
+        copy.after = this.after;
+
+        return copy;
+    }
+
+    /**
+     * Returns the entities in the source matching the where conditionals registered with the query.
+     *
+     * @param ordered Whether or not the results should be sorted using the order clauses registered with the query.
+     * @return The matching entities.
+     */
+    private List<E> execute(boolean ordered)
+    {
+        Predicate<E> predicate = compileWheres(effectiveWheres());
+        List<E>      results   = new ArrayList<>();
+        for (E entity : source)
+            if (predicate.test(entity))
+                results.add(entity);
+
+        List<Order> orders = after == null ? this.orders : keysetOrders(kAttribute);
+        if (ordered && !orders.isEmpty())
+            results.sort(compileOrders(orders));
+
+        return results;
+    }
+
+    private List<Conditional> effectiveWheres()
+    {
+        if (after == null || after.isFirst())
+            return this.wheres;
+
+        List<Conditional> wheres = new ArrayList<>(this.wheres);
+        wheres.add(seek(keysetOrders(kAttribute), after));
+        return wheres;
+    }
+
+    private static <T> List<T> slice(List<T> results, int skip, int limit)
+    {
+        if (skip >= results.size() || limit < 1)
+            return new ArrayList<>(0);
+
+        int end = (int) Math.min((long) skip + limit, results.size());
+        return new ArrayList<>(results.subList(skip, end));
+    }
+
+    private Predicate<E> compileWheres(List<Conditional> wheres)
+    {
+        wheres = QueryOptimizer.optimize(wheres);
+        if (wheres.isEmpty())
+            return entity -> true;
+        if (QueryOptimizer.isFalse(wheres))
+            return entity -> false;
+
+        List<Predicate<Object>> predicates = new ArrayList<>(wheres.size());
+        for (Conditional conditional : wheres)
+            predicates.add(compileConditional(conditional));
+
+        return entity -> {
+            for (Predicate<Object> predicate : predicates)
+                if (!predicate.test(entity))
+                    return false;
+
+            return true;
+        };
+    }
+
+    private Predicate<Object> compileConditional(Conditional conditional)
+    {
+        switch (conditional.type) {
+            case OP:
+                return compileOpCondition(conditional.operation);
+            case AND:
+                return compileConditional(conditional.left).and(compileConditional(conditional.right));
+            case OR:
+                return compileConditional(conditional.left).or(compileConditional(conditional.right));
+            case TRUE:
+                return entity -> true;
+            case FALSE:
+                return entity -> false;
+            default:
+                throw new RepositoryQueryCompileException("Missing condition type.");
+        }
+    }
+
+    private Predicate<Object> compileOpCondition(Operation operation)
+    {
+        Function<Object, Object> getter = AttributeAccessor.getter(operation.attribute);
+
+        switch (operation.type) {
+            case EQ: {
+                Object value = argument(operation, 0);
+                return entity -> equal(getter.apply(entity), value);
+            }
+            case NOT: {
+                Object value = argument(operation, 0);
+                return entity -> {
+                    Object attribute = getter.apply(entity);
+                    return attribute != null && value != null && !equal(attribute, value);
+                };
+            }
+            case GT: {
+                Object value = argument(operation, 0);
+                return entity -> matches(compare(getter.apply(entity), value), c -> c > 0);
+            }
+            case LT: {
+                Object value = argument(operation, 0);
+                return entity -> matches(compare(getter.apply(entity), value), c -> c < 0);
+            }
+            case GTOE: {
+                Object value = argument(operation, 0);
+                return entity -> matches(compare(getter.apply(entity), value), c -> c >= 0);
+            }
+            case LTOE: {
+                Object value = argument(operation, 0);
+                return entity -> matches(compare(getter.apply(entity), value), c -> c <= 0);
+            }
+            case IN: {
+                Set<Object> values = normalizedSet((Collection<?>) argument(operation, 0));
+                if (values.isEmpty())
+                    return entity -> false;
+
+                return entity -> {
+                    Object attribute = getter.apply(entity);
+                    return attribute != null && values.contains(normalize(attribute));
+                };
+            }
+            case NOT_IN: {
+                Set<Object> values = normalizedSet((Collection<?>) argument(operation, 0));
+                if (values.isEmpty())
+                    return entity -> true;
+                if (values.contains(null))
+                    return entity -> false;
+
+                return entity -> {
+                    Object attribute = getter.apply(entity);
+                    return attribute != null && !values.contains(normalize(attribute));
+                };
+            }
+            case BETWEEN: {
+                Object start = argument(operation, 0);
+                Object end   = argument(operation, 1);
+                return entity -> {
+                    Object attribute = getter.apply(entity);
+                    return matches(compare(attribute, start), c -> c >= 0) &&
+                           matches(compare(attribute, end), c -> c <= 0);
+                };
+            }
+            case OUTSIDE: {
+                Object start = argument(operation, 0);
+                Object end   = argument(operation, 1);
+                return entity -> {
+                    Object attribute = getter.apply(entity);
+                    return matches(compare(attribute, start), c -> c < 0) ||
+                           matches(compare(attribute, end), c -> c > 0);
+                };
+            }
+            case LIKE: {
+                Pattern pattern = likePattern(argument(operation, 0));
+                return entity -> {
+                    Object attribute = getter.apply(entity);
+                    return attribute != null && pattern.matcher(attribute.toString()).matches();
+                };
+            }
+            case NOT_LIKE: {
+                Pattern pattern = likePattern(argument(operation, 0));
+                return entity -> {
+                    Object attribute = getter.apply(entity);
+                    return attribute != null && !pattern.matcher(attribute.toString()).matches();
+                };
+            }
+        }
+
+        throw new RepositoryQueryCompileException("Unknown operation type " + operation.type.toString());
+    }
+
+    private Comparator<E> compileOrders(List<Order> orders)
+    {
+        Comparator<E> comparator = null;
+        for (Order order : orders) {
+            Function<Object, Object> getter  = AttributeAccessor.getter(order.attribute);
+            Comparator<E>            current = (a, b) -> compareNullsFirst(getter.apply(a), getter.apply(b));
+            if (order.direction == Direction.DESC)
+                current = current.reversed();
+
+            comparator = comparator == null ? current : comparator.thenComparing(current);
+        }
+
+        return comparator;
+    }
+
+    /**
+     * Applies the provided aggregate function to the values of the provided attribute of the provided entities.
+     * Like in SQL, {@code null} values are ignored, and the aggregate of no values is {@code null}, except for
+     * {@link Aggregate#COUNT} and {@link Aggregate#COUNT_DISTINCT}.
+     *
+     * @param aggregate The aggregate function to apply.
+     * @param entities  The entities to aggregate.
+     * @param attribute The attribute to aggregate.
+     * @param vClass    The type of the aggregated value.
+     * @return The aggregated value.
+     */
+    private Object aggregate(Aggregate aggregate, List<E> entities, String attribute, Class<?> vClass)
+    {
+        Function<Object, Object> getter = AttributeAccessor.getter(attribute);
+        List<Object>             values = new ArrayList<>(entities.size());
+        for (E entity : entities) {
+            Object value = getter.apply(entity);
+            if (value != null)
+                values.add(value);
+        }
+
+        switch (aggregate) {
+            case COUNT:
+                return (long) values.size();
+            case COUNT_DISTINCT:
+                return (long) normalizedSet(values).size();
+            case MIN:
+                return values.stream().min(CollectionRepositoryQuery::compareNullsFirst).orElse(null);
+            case MAX:
+                return values.stream().max(CollectionRepositoryQuery::compareNullsFirst).orElse(null);
+            case SUM: {
+                if (values.isEmpty())
+                    return null;
+
+                BigDecimal sum      = BigDecimal.ZERO;
+                boolean    integral = true;
+                for (Object value : values) {
+                    sum = sum.add(decimal(value));
+                    integral &= !(value instanceof Double || value instanceof Float || value instanceof BigDecimal);
+                }
+
+                return convert(sum, vClass, integral);
+            }
+            case AVG: {
+                if (values.isEmpty())
+                    return null;
+
+                double sum = 0;
+                for (Object value : values)
+                    sum += decimal(value).doubleValue();
+
+                return sum / values.size();
+            }
+            default:
+                throw new RepositoryQueryCompileException("Missing aggregate type.");
+        }
+    }
+
+    private static Object convert(BigDecimal value, Class<?> vClass, boolean integral)
+    {
+        if (vClass == Long.class)
+            return value.longValue();
+        if (vClass == Integer.class)
+            return value.intValue();
+        if (vClass == Short.class)
+            return value.shortValue();
+        if (vClass == Double.class)
+            return value.doubleValue();
+        if (vClass == Float.class)
+            return value.floatValue();
+        if (vClass == BigDecimal.class)
+            return value;
+        if (vClass == BigInteger.class)
+            return value.toBigInteger();
+
+        return integral ? (Object) value.longValue() : (Object) value.doubleValue();
+    }
+
+    private static <V> V construct(Class<V> vClass, Object[] values)
+    {
+        for (Constructor<?> constructor : vClass.getConstructors()) {
+            if (constructor.getParameterCount() != values.length)
+                continue;
+
+            try {
+                return vClass.cast(constructor.newInstance(values));
+            } catch (IllegalArgumentException e) {
+                // The values do not match the parameters, try the next constructor
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                throw new RepositoryQueryException("Could not construct " + vClass.getName(), e);
+            }
+        }
+
+        throw new RepositoryQueryException(
+                String.format("No public constructor on %s accepts the projected attributes.", vClass.getName()));
+    }
+
+    private static List<Function<Object, Object>> getters(String[] attributes)
+    {
+        List<Function<Object, Object>> getters = new ArrayList<>(attributes.length);
+        for (String attribute : attributes)
+            getters.add(AttributeAccessor.getter(attribute));
+
+        return getters;
+    }
+
+    private static Object[] values(List<Function<Object, Object>> getters, Object entity)
+    {
+        Object[] values = new Object[getters.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = getters.get(i).apply(entity);
+
+        return values;
+    }
+
+    private static Object argument(Operation operation, int n)
+    {
+        if (n >= operation.arguments.length)
+            throw new RepositoryQueryCompileException("Missing argument " + n + " for operation " + operation.type);
+
+        return operation.arguments[n];
+    }
+
+    private static boolean matches(Integer comparison, Predicate<Integer> predicate)
+    {
+        return comparison != null && predicate.test(comparison);
+    }
+
+    private static boolean equal(Object a, Object b)
+    {
+        Integer comparison = compare(a, b);
+
+        return comparison != null && comparison == 0;
+    }
+
+    /**
+     * Compares the provided values.
+     *
+     * @param a The first value to compare.
+     * @param b The second value to compare.
+     * @return The result of the comparison, {@code null} when either of the values is {@code null}.
+     * @throws RepositoryQueryException When the values cannot be compared.
+     */
+    private static Integer compare(Object a, Object b)
+    {
+        if (a == null || b == null)
+            return null;
+
+        if (a instanceof Number && b instanceof Number)
+            return decimal(a).compareTo(decimal(b));
+
+        if (!(a instanceof Comparable))
+            return a.equals(b) ? 0 : null;
+
+        // Values of incompatible types are rejected by compareTo, which is reported below.
+        @SuppressWarnings("unchecked")
+        Comparable<Object> comparable = (Comparable<Object>) a;
+        try {
+            return comparable.compareTo(b);
+        } catch (ClassCastException e) {
+            throw new RepositoryQueryException(
+                    String.format("Cannot compare %s with %s.", a.getClass().getName(), b.getClass().getName()), e);
+        }
+    }
+
+    private static int compareNullsFirst(Object a, Object b)
+    {
+        if (a == null)
+            return b == null ? 0 : -1;
+        if (b == null)
+            return 1;
+
+        Integer comparison = compare(a, b);
+        if (comparison == null)
+            throw new RepositoryQueryException("Cannot order by non-comparable value " + a);
+
+        return comparison;
+    }
+
+    private static BigDecimal decimal(Object number)
+    {
+        if (number instanceof BigDecimal)
+            return (BigDecimal) number;
+        if (number instanceof BigInteger)
+            return new BigDecimal((BigInteger) number);
+        if (number instanceof Double || number instanceof Float)
+            return BigDecimal.valueOf(((Number) number).doubleValue());
+        if (number instanceof Number)
+            return BigDecimal.valueOf(((Number) number).longValue());
+
+        throw new RepositoryQueryException("Cannot aggregate non-numeric value " + number);
+    }
+
+    /**
+     * Normalizes the provided value, so numbers of different types with the same value are equal.
+     *
+     * @param value The value to normalize.
+     * @return The normalized value.
+     */
+    private static Object normalize(Object value)
+    {
+        if (value instanceof Number)
+            return decimal(value).stripTrailingZeros();
+
+        return value;
+    }
+
+    private static Set<Object> normalizedSet(Collection<?> values)
+    {
+        Set<Object> set = new HashSet<>(values.size() * 2);
+        for (Object value : values)
+            set.add(normalize(value));
+
+        return set;
+    }
+
+    /**
+     * Compiles the provided {@code like} value into a pattern. Like {@link JpaRepositoryQuery}, the value matches
+     * anywhere in the attribute, and the {@code %} and {@code _} wildcards are supported.
+     *
+     * @param value The value to compile.
+     * @return The resulting pattern.
+     */
+    private static Pattern likePattern(Object value)
+    {
+        String        like    = '%' + String.valueOf(value) + '%';
+        StringBuilder builder = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : like.toCharArray()) {
+            if (c != '%' && c != '_') {
+                literal.append(c);
+                continue;
+            }
+
+            if (literal.length() > 0) {
+                builder.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+
+            builder.append(c == '%' ? ".*" : ".");
+        }
+
+        if (literal.length() > 0)
+            builder.append(Pattern.quote(literal.toString()));
+
+        return Pattern.compile(builder.toString(), Pattern.DOTALL);
+    }
+
+    private static class StoppingRunnable implements Runnable
+    {
+
+        private boolean stopped = false;
+
+        @Override
+        public void run()
+        {
+            this.stopped = true;
+        }
+    }
+
+    private static class ListChunk<E> implements Chunk<E>
+    {
+
+        private final int     index;
+        private final List<E> results;
+
+        private ListChunk(int index, List<E> results)
+        {
+            this.index = index;
+            this.results = results;
+        }
+
+        @Override
+        public int index()
+        {
+            return index;
+        }
+
+        @Override
+        public int position()
+        {
+            return index + 1;
+        }
+
+        @Override
+        public List<E> getResults()
+        {
+            return results;
+        }
+    }
+}
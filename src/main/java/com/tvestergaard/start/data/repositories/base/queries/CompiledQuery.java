@@ -0,0 +1,62 @@
+package com.tvestergaard.start.data.repositories.base.queries;
+
+import javax.persistence.Query;
+import java.util.List;
+
+/**
+ * A query compiled from the shape of a {@link RepositoryQuery}. Contains the generated query string and the plan used
+ * to bind the values of the query to its parameters.
+ */
+public class CompiledQuery
+{
+
+    /**
+     * The compiled query string.
+     */
+    public final String query;
+
+    /**
+     * The names of the parameters in the compiled query, in the order their values are provided when binding.
+     */
+    private final String[] parameters;
+
+    /**
+     * Creates a new {@link CompiledQuery}.
+     *
+     * @param query      The compiled query string.
+     * @param parameters The names of the parameters in the compiled query, in the order their values are provided
+     *                   when binding.
+     */
+    public CompiledQuery(String query, String[] parameters)
+    {
+        this.query = query;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Binds the provided values to the parameters of the provided query.
+     *
+     * @param query  The query to bind the values to.
+     * @param values The values to bind, in the order of the parameters in the compiled query.
+     * @throws RepositoryQueryCompileException When the number of values does not match the number of parameters.
+     */
+    public void bind(Query query, List<Object> values)
+    {
+        if (values.size() != parameters.length)
+            throw new RepositoryQueryCompileException(
+                    String.format("Expected %d parameters, got %d.", parameters.length, values.size()));
+
+        for (int i = 0; i < parameters.length; i++)
+            query.setParameter(parameters[i], values.get(i));
+    }
+
+    /**
+     * Returns the number of parameters in the compiled query.
+     *
+     * @return The number of parameters in the compiled query.
+     */
+    public int getParameterCount()
+    {
+        return parameters.length;
+    }
+}
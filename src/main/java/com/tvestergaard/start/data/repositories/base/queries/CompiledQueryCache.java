@@ -0,0 +1,74 @@
+package com.tvestergaard.start.data.repositories.base.queries;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, thread-safe cache of {@link CompiledQuery} instances keyed by the shape of the query they were compiled
+ * from. When the cache reaches its capacity it is emptied, as the number of distinct query shapes in an application
+ * is expected to be small.
+ */
+public class CompiledQueryCache
+{
+
+    /**
+     * The compiled queries mapped to the shape they were compiled from.
+     */
+    private final Map<String, CompiledQuery> queries = new ConcurrentHashMap<>();
+
+    /**
+     * The maximum number of compiled queries to hold.
+     */
+    private final int capacity;
+
+    /**
+     * Creates a new {@link CompiledQueryCache}.
+     *
+     * @param capacity The maximum number of compiled queries to hold.
+     */
+    public CompiledQueryCache(int capacity)
+    {
+        this.capacity = Math.max(capacity, 1);
+    }
+
+    /**
+     * Returns the compiled query with the provided shape. When no such query exists, the query is compiled using the
+     * provided {@code compiler}.
+     *
+     * @param shape    The normalized shape of the query.
+     * @param compiler The compiler used when the query has not yet been compiled.
+     * @return The compiled query.
+     */
+    public CompiledQuery get(String shape, Supplier<CompiledQuery> compiler)
+    {
+        CompiledQuery compiled = queries.get(shape);
+        if (compiled != null)
+            return compiled;
+
+        if (queries.size() >= capacity)
+            queries.clear();
+
+        compiled = compiler.get();
+        queries.putIfAbsent(shape, compiled);
+        return compiled;
+    }
+
+    /**
+     * Returns the number of compiled queries in the cache.
+     *
+     * @return The number of compiled queries in the cache.
+     */
+    public int size()
+    {
+        return queries.size();
+    }
+
+    /**
+     * Removes all the compiled queries from the cache.
+     */
+    public void clear()
+    {
+        queries.clear();
+    }
+}
@@ -0,0 +1,220 @@
+package com.tvestergaard.start.data.repositories.base.queries;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Represents a position in the ordered results of a {@link RepositoryQuery}, used to retrieve the results following
+ * the position without skipping the preceding results. The position is defined by the values of the ordered
+ * attributes of the last result before the position, followed by the value of the key attribute.
+ * <p>
+ * Cursors can be converted to and from an opaque string using {@link Cursor#encode()} and
+ * {@link Cursor#decode(String)}, so they can be handed to and received from clients.
+ */
+public class Cursor
+{
+
+    /**
+     * The cursor representing the position before the first result.
+     */
+    private static final Cursor FIRST = new Cursor(null);
+
+    /**
+     * The values of the ordered attributes of the last result before the position. {@code null} when the cursor
+     * represents the position before the first result.
+     */
+    private final Object[] values;
+
+    /**
+     * Creates a new {@link Cursor}.
+     *
+     * @param values The values of the ordered attributes of the last result before the position. {@code null} when
+     *               the cursor represents the position before the first result.
+     */
+    private Cursor(Object[] values)
+    {
+        this.values = values;
+    }
+
+    /**
+     * Returns the cursor representing the position before the first result.
+     *
+     * @return The cursor representing the position before the first result.
+     */
+    public static Cursor first()
+    {
+        return FIRST;
+    }
+
+    /**
+     * Creates a new cursor positioned after the result with the provided values.
+     *
+     * @param values The values of the ordered attributes of the last result before the position, followed by the value
+     *               of the key attribute.
+     * @return The newly created cursor.
+     */
+    public static Cursor of(Object... values)
+    {
+        return new Cursor(Arrays.copyOf(values, values.length));
+    }
+
+    /**
+     * Checks whether or not the cursor represents the position before the first result.
+     *
+     * @return {@code true} when the cursor represents the position before the first result.
+     */
+    public boolean isFirst()
+    {
+        return values == null;
+    }
+
+    /**
+     * Returns the values of the ordered attributes of the last result before the position.
+     *
+     * @return The values of the ordered attributes of the last result before the position. An empty array when the
+     * cursor represents the position before the first result.
+     */
+    public Object[] getValues()
+    {
+        return values == null ? new Object[0] : Arrays.copyOf(values, values.length);
+    }
+
+    /**
+     * Encodes the cursor into an opaque, url-safe string.
+     *
+     * @return The encoded cursor.
+     * @throws RepositoryQueryException When the cursor contains a value of an unsupported type.
+     */
+    public String encode()
+    {
+        if (values == null)
+            return "";
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                builder.append('.');
+            builder.append(encode(values[i]));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Decodes a cursor previously encoded using {@link Cursor#encode()}.
+     *
+     * @param encoded The encoded cursor.
+     * @return The decoded cursor.
+     * @throws RepositoryQueryException When the provided string is not a valid cursor.
+     */
+    public static Cursor decode(String encoded)
+    {
+        if (encoded == null || encoded.isEmpty())
+            return first();
+
+        String[] parts  = encoded.split("\\.", -1);
+        Object[] values = new Object[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            values[i] = decodeValue(parts[i]);
+
+        return new Cursor(values);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Cursor" + Arrays.toString(values);
+    }
+
+    private static String encode(Object value)
+    {
+        if (value == null)
+            return "n";
+
+        Type type = Type.of(value.getClass());
+        if (type == null)
+            throw new RepositoryQueryException("Unsupported cursor value type " + value.getClass().getName());
+
+        return type.tag + Base64.getUrlEncoder()
+                                .withoutPadding()
+                                .encodeToString(value.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object decodeValue(String part)
+    {
+        if (part.equals("n"))
+            return null;
+
+        if (part.isEmpty())
+            throw new RepositoryQueryException("Malformed cursor.");
+
+        Type type = Type.of(part.charAt(0));
+        if (type == null)
+            throw new RepositoryQueryException("Malformed cursor.");
+
+        try {
+            byte[] decoded = Base64.getUrlDecoder().decode(part.substring(1));
+            return type.parser.apply(new String(decoded, StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new RepositoryQueryException("Malformed cursor.", e);
+        }
+    }
+
+    /**
+     * The types of values that can be encoded in a cursor.
+     */
+    private enum Type
+    {
+        STRING('s', String.class, s -> s),
+        INTEGER('i', Integer.class, Integer::valueOf),
+        LONG('l', Long.class, Long::valueOf),
+        SHORT('h', Short.class, Short::valueOf),
+        BYTE('b', Byte.class, Byte::valueOf),
+        DOUBLE('d', Double.class, Double::valueOf),
+        FLOAT('f', Float.class, Float::valueOf),
+        BOOLEAN('z', Boolean.class, Boolean::valueOf),
+        BIG_DECIMAL('D', BigDecimal.class, BigDecimal::new),
+        BIG_INTEGER('I', BigInteger.class, BigInteger::new),
+        LOCAL_DATE('a', LocalDate.class, LocalDate::parse),
+        LOCAL_DATE_TIME('t', LocalDateTime.class, LocalDateTime::parse),
+        LOCAL_TIME('o', LocalTime.class, LocalTime::parse),
+        INSTANT('x', Instant.class, Instant::parse);
+
+        private final char                     tag;
+        private final Class<?>                 type;
+        private final Function<String, Object> parser;
+
+        Type(char tag, Class<?> type, Function<String, Object> parser)
+        {
+            this.tag = tag;
+            this.type = type;
+            this.parser = parser;
+        }
+
+        private static Type of(Class<?> c)
+        {
+            for (Type type : values())
+                if (type.type == c)
+                    return type;
+
+            return null;
+        }
+
+        private static Type of(char tag)
+        {
+            for (Type type : values())
+                if (type.tag == tag)
+                    return type;
+
+            return null;
+        }
+    }
+}
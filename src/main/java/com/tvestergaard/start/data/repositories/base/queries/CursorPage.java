@@ -0,0 +1,66 @@
+package com.tvestergaard.start.data.repositories.base.queries;
+
+import java.util.List;
+
+/**
+ * Represents a page of results retrieved using keyset pagination.
+ *
+ * @param <E> The type of the results in the page.
+ * @see RepositoryQuery#getPageAfter(int, Cursor)
+ */
+public class CursorPage<E>
+{
+
+    /**
+     * The results in the page.
+     */
+    private final List<E> results;
+
+    /**
+     * The cursor positioned after the last result in the page. {@code null} when no results follow the page.
+     */
+    private final Cursor next;
+
+    /**
+     * Creates a new {@link CursorPage}.
+     *
+     * @param results The results in the page.
+     * @param next    The cursor positioned after the last result in the page. {@code null} when no results follow
+     *                the page.
+     */
+    public CursorPage(List<E> results, Cursor next)
+    {
+        this.results = results;
+        this.next = next;
+    }
+
+    /**
+     * Returns the results in the page.
+     *
+     * @return The results in the page.
+     */
+    public List<E> getResults()
+    {
+        return this.results;
+    }
+
+    /**
+     * Returns the cursor positioned after the last result in the page.
+     *
+     * @return The cursor positioned after the last result in the page. {@code null} when no results follow the page.
+     */
+    public Cursor getNext()
+    {
+        return this.next;
+    }
+
+    /**
+     * Checks whether or not any results follow the page.
+     *
+     * @return {@code true} when results follow the page, {@code false} otherwise.
+     */
+    public boolean hasNext()
+    {
+        return this.next != null;
+    }
+}
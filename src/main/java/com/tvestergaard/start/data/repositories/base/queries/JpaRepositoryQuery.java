@@ -1,20 +1,54 @@
 package com.tvestergaard.start.data.repositories.base.queries;
 
 import com.tvestergaard.start.data.repositories.base.RepositoryEntity;
+import com.tvestergaard.start.data.repositories.base.queries.tree.Aggregate;
 import com.tvestergaard.start.data.repositories.base.queries.tree.Conditional;
 import com.tvestergaard.start.data.repositories.base.queries.tree.Operation;
 import com.tvestergaard.start.data.repositories.base.queries.tree.Order;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEntity<K>> extends AbstractRepositoryQuery<K, E>
 {
 
+    /**
+     * The maximum number of values bound to a single {@code IN} or {@code NOT IN} parameter. Larger collections are
+     * partitioned into batches of this size, so the size of the generated statements stays within driver limits.
+     * Where the results of the batches can be merged, like when the results are not ordered, each batch of an
+     * {@code IN} collection is executed as a separate statement. Otherwise the batches are combined within a single
+     * statement.
+     */
+    public static final int IN_BATCH_SIZE = 1000;
+
     /**
      * The entity manager the query is called upon.
      */
@@ -40,6 +74,27 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
      */
     private final String prefix;
 
+    /**
+     * The action performed after the query deletes or updates entities, {@code null} when no action is performed.
+     */
+    private Runnable bulkWriteListener;
+
+    /**
+     * The entity manager that entities are deleted, updated and chunked upon, {@code null} when the entity manager
+     * the query is called upon is used.
+     */
+    private EntityManager writeEntityManager;
+
+    /**
+     * The queries compiled from the shapes of the previously executed queries.
+     */
+    private static final CompiledQueryCache compiledQueries = new CompiledQueryCache(1024);
+
+    /**
+     * The executor executing the asynchronous queries.
+     */
+    private static volatile Executor asyncExecutor = createAsyncExecutor();
+
     /**
      * Creates a new {@link JpaRepositoryQuery} with the provided list of .
      *
@@ -107,10 +162,50 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
     @Override
     public List<E> get()
     {
-        return createDataQuery(entityManager)
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return new ArrayList<>(0);
+
+        if (this.skip > 0 || !prepared.orders.isEmpty())
+            return createDataQuery(prepared)
+                    .setMaxResults(this.limit)
+                    .setFirstResult(this.skip)
+                    .getResultList();
+
+        List<E> results = new ArrayList<>();
+        for (Prepared batch : prepareBatches(prepared)) {
+            if (results.size() >= this.limit)
+                break;
+            results.addAll(createDataQuery(batch)
+                                   .setMaxResults(this.limit - results.size())
+                                   .getResultList());
+        }
+
+        return results;
+    }
+
+    /**
+     * Executes the query, returning the results as a stream. The results are read using a forward-only cursor, and
+     * each result is detached from the entity manager once processed. Note that some drivers, like the MySQL driver,
+     * require additional configuration before results are streamed from the database.
+     *
+     * @param fetchSize The number of results to fetch from the underlying data source at a time.
+     * @return The stream of the results in the query.
+     */
+    @Override
+    public Stream<E> stream(int fetchSize)
+    {
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return Stream.empty();
+
+        Query<?> query = createDataQuery(prepared)
                 .setMaxResults(this.limit)
                 .setFirstResult(this.skip)
-                .getResultList();
+                .unwrap(Query.class);
+
+        ScrollableResults results = query.setFetchSize(Math.max(fetchSize, 1)).scroll(ScrollMode.FORWARD_ONLY);
+        return StreamSupport.stream(new ScrollingSpliterator(results), false).onClose(results::close);
     }
 
     /**
@@ -123,15 +218,106 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
     @Override
     public List<E> getPage(int pageSize, int pageNumber)
     {
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return new ArrayList<>(0);
+
         pageSize = Math.max(pageSize, 1);
         pageNumber = Math.max(pageNumber, 1);
 
-        return createDataQuery(entityManager)
+        return createDataQuery(prepared)
                 .setMaxResults(Math.min(pageSize, this.limit))
                 .setFirstResult(this.skip + (pageSize * (pageNumber - 1)))
                 .getResultList();
     }
 
+    /**
+     * Executes the query returning the result of a single page, together with the total number of results in the
+     * query. The where conditionals are prepared once for both the page and the count query. The count query is
+     * omitted when the total can be derived from the page, that is when the page is the last page with results.
+     * <p>
+     * When {@code concurrent} is {@code true}, the results are counted on the asynchronous executor while the page is
+     * retrieved, see {@link JpaRepositoryQuery#countAsync()}.
+     *
+     * @param pageSize   The number of results on a single page. Where {@code pageSize >= 1}.
+     * @param pageNumber The page to return the results from. Where {@code pageNumber >= 1}.
+     * @param concurrent Whether or not the results may be counted concurrently with retrieving the page.
+     * @return The results in the page, and the total number of results.
+     */
+    @Override
+    public Page<E> getPageWithTotal(int pageSize, int pageNumber, boolean concurrent)
+    {
+        pageSize = Math.max(pageSize, 1);
+        pageNumber = Math.max(pageNumber, 1);
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return new Page<>(new ArrayList<>(0), 0, pageSize, pageNumber);
+
+        CompletableFuture<Long> count = concurrent ? countAsync() : null;
+
+        long    offset  = (long) pageSize * (pageNumber - 1);
+        int     size    = Math.min(pageSize, this.limit);
+        List<E> results = createQuery(prepared, dataHead(), "", true, eClass)
+                .setMaxResults(size)
+                .setFirstResult((int) Math.min(this.skip + offset, Integer.MAX_VALUE))
+                .getResultList();
+
+        if (results.size() < size && (!results.isEmpty() || this.skip + offset == 0)) {
+            if (count != null)
+                count.cancel(false);
+
+            return new Page<>(results, this.skip + offset + results.size(), pageSize, pageNumber);
+        }
+
+        if (count == null) {
+            long total = createQuery(prepared, countHead(), "", false, Long.class).getSingleResult();
+            return new Page<>(results, total, pageSize, pageNumber);
+        }
+
+        try {
+            return new Page<>(results, count.join(), pageSize, pageNumber);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Executes the query returning the page of results following the provided {@code cursor}.
+     *
+     * @param pageSize The number of results on a single page. Where {@code pageSize >= 1}.
+     * @param cursor   The cursor to return the following results of. Either {@code null} or {@link Cursor#first()}
+     *                 to return the first page.
+     * @return The results in the page, and the cursor positioned after the page.
+     */
+    @Override
+    public CursorPage<E> getPageAfter(int pageSize, Cursor cursor)
+    {
+        pageSize = Math.min(Math.max(pageSize, 1), Integer.MAX_VALUE - 1);
+        if (this.limit < 1)
+            return new CursorPage<>(new ArrayList<>(0), null);
+
+        JpaRepositoryQuery<K, E> query = (JpaRepositoryQuery<K, E>) copy();
+        query.after = cursor == null ? Cursor.first() : cursor;
+        query.skip = 0;
+
+        Prepared prepared = query.prepare();
+        if (prepared.empty)
+            return new CursorPage<>(new ArrayList<>(0), null);
+
+        pageSize = Math.min(pageSize, this.limit);
+        List<E> results = query.createDataQuery(prepared)
+                               .setMaxResults(pageSize + 1)
+                               .getResultList();
+
+        if (results.size() <= pageSize)
+            return new CursorPage<>(results, null);
+
+        results = new ArrayList<>(results.subList(0, pageSize));
+        return new CursorPage<>(results, cursor(results.get(pageSize - 1), keysetOrders(kAttribute)));
+    }
+
     /**
      * Returns the first {@code n} result of the query. The operation does not throw an exception when the
      * results are out of bounds.
@@ -142,7 +328,11 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
     @Override
     public List<E> getFirst(int n)
     {
-        return createDataQuery(entityManager)
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return new ArrayList<>(0);
+
+        return createDataQuery(prepared)
                 .setMaxResults(Math.min(n, this.limit))
                 .setFirstResult(this.skip)
                 .getResultList();
@@ -157,8 +347,12 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
     @Override
     public E getAt(int n)
     {
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return null;
+
         try {
-            return createDataQuery(entityManager)
+            return createDataQuery(prepared)
                     .setMaxResults(Math.min(1, this.limit))
                     .setFirstResult(this.skip + n)
                     .getSingleResult();
@@ -170,35 +364,62 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
     @Override
     public long count()
     {
-        return createCountQuery(entityManager)
-                .getSingleResult();
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return 0;
+
+        long count = 0;
+        for (Prepared batch : prepareBatches(prepared))
+            count += createQuery(batch, countHead(), false, Long.class).getSingleResult();
+
+        return count;
     }
 
+    /**
+     * Checks whether or not the query has any results. Only the key of the first matching result is selected, so the
+     * underlying data source can stop at the first match.
+     *
+     * @return {@code true} when the query has any results, {@code false} otherwise.
+     */
     @Override
     public boolean exists()
     {
-        return count() > 0;
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return false;
+
+        for (Prepared batch : prepareBatches(prepared))
+            if (!createQuery(batch, keyHead(), false, kClass).setMaxResults(1).getResultList().isEmpty())
+                return true;
+
+        return false;
     }
 
+    /**
+     * Checks whether or not the query has a result with the provided key. The query itself is not modified.
+     *
+     * @param key The key to check for.
+     * @return {@code true} when the query has a result with the provided key, {@code false} otherwise.
+     */
     @Override
     public boolean contains(K key)
     {
-        return eq(kAttribute, key).exists();
+        return copy().eq(kAttribute, key).exists();
     }
 
     @Override
     public <V> V max(String attribute, Class<V> vClass)
     {
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return null;
+
         try {
-            TypedQuery<V> query = entityManager
-                    .createQuery(String.format("SELECT max(%s) FROM %s %s %s",
-                                               prefix + "." + attribute,
-                                               eClass.getSimpleName(),
-                                               prefix,
-                                               generateJPQL()), vClass);
-
-            bindJPQL(query);
-            return query.getSingleResult();
+            return createQuery(prepared, String.format("SELECT max(%s) FROM %s %s",
+                                                       prefix(attribute),
+                                                       eClass.getSimpleName(),
+                                                       prefix), false, vClass)
+                    .getSingleResult();
         } catch (NoResultException e) {
             return null;
         }
@@ -207,78 +428,470 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
     @Override
     public <V> V min(String attribute, Class<V> vClass)
     {
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return null;
+
         try {
-            TypedQuery<V> query = entityManager
-                    .createQuery(String.format("SELECT min(%s) FROM %s %s %s",
-                                               prefix + "." + attribute,
-                                               eClass.getSimpleName(),
-                                               prefix,
-                                               generateJPQL()), vClass);
-
-            bindJPQL(query);
-            return query.getSingleResult();
+            return createQuery(prepared, String.format("SELECT min(%s) FROM %s %s",
+                                                       prefix(attribute),
+                                                       eClass.getSimpleName(),
+                                                       prefix), false, vClass)
+                    .getSingleResult();
         } catch (NoResultException e) {
             return null;
         }
     }
 
     @Override
-    public <V> List<V> getAttributes(String attribute, Class<V> vClass)
+    public <V> V sum(String attribute, Class<V> vClass)
     {
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return null;
+
         try {
-            TypedQuery<V> query = entityManager
-                    .createQuery(String.format("SELECT %s FROM %s %s %s",
-                                               prefix + "." + attribute,
-                                               eClass.getSimpleName(),
-                                               prefix,
-                                               generateJPQL()), vClass);
-
-            bindJPQL(query);
-            return query.getResultList();
+            return createQuery(prepared, String.format("SELECT sum(%s) FROM %s %s",
+                                                       prefix(attribute),
+                                                       eClass.getSimpleName(),
+                                                       prefix), false, vClass)
+                    .getSingleResult();
         } catch (NoResultException e) {
             return null;
         }
     }
 
     @Override
-    public List<K> getKeys()
+    public Double avg(String attribute)
     {
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return null;
+
         try {
-            TypedQuery<K> query = entityManager
-                    .createQuery(String.format("SELECT %s FROM %s %s %s",
-                                               prefix + "." + kAttribute,
-                                               eClass.getSimpleName(),
-                                               prefix,
-                                               generateJPQL()), kClass);
-
-            bindJPQL(query);
-            return query.getResultList();
+            return createQuery(prepared, String.format("SELECT avg(%s) FROM %s %s",
+                                                       prefix(attribute),
+                                                       eClass.getSimpleName(),
+                                                       prefix), false, Double.class)
+                    .getSingleResult();
         } catch (NoResultException e) {
             return null;
         }
     }
 
+    @Override
+    public long countDistinct(String attribute)
+    {
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return 0;
+
+        return createQuery(prepared, String.format("SELECT count(DISTINCT %s) FROM %s %s",
+                                                   prefix(attribute),
+                                                   eClass.getSimpleName(),
+                                                   prefix), false, Long.class)
+                .getSingleResult();
+    }
+
+    @Override
+    public <G> Map<G, Long> groupBy(String attribute, Class<G> gClass)
+    {
+        return groupBy(attribute, gClass, Aggregate.COUNT, kAttribute, Long.class);
+    }
+
+    @Override
+    public <G, V> Map<G, V> groupBy(String attribute, Class<G> gClass, Aggregate aggregate, String aggregated, Class<V> vClass)
+    {
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return new LinkedHashMap<>();
+
+        String head = String.format("SELECT %s, %s FROM %s %s",
+                                    prefix(attribute),
+                                    aggregate(aggregate, aggregated),
+                                    eClass.getSimpleName(),
+                                    prefix);
+        String tail = String.format(" GROUP BY %s ORDER BY %s", prefix(attribute), prefix(attribute));
+
+        List<Object[]> results = createQuery(prepared, head, tail, false, Object[].class).getResultList();
+        Map<G, V>      groups  = new LinkedHashMap<>();
+        for (Object[] result : results)
+            groups.put(gClass.cast(result[0]), vClass.cast(result[1]));
+
+        return groups;
+    }
+
+    @Override
+    public <V> List<V> getAttributes(String attribute, Class<V> vClass)
+    {
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return new ArrayList<>(0);
+
+        try {
+            return createQuery(prepared, String.format("SELECT %s FROM %s %s",
+                                                       prefix(attribute),
+                                                       eClass.getSimpleName(),
+                                                       prefix), true, vClass)
+                    .getResultList();
+        } catch (NoResultException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public List<K> getKeys()
+    {
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return new ArrayList<>(0);
+
+        if (!prepared.orders.isEmpty())
+            return createQuery(prepared, keyHead(), true, kClass).getResultList();
+
+        List<K> keys = new ArrayList<>();
+        for (Prepared batch : prepareBatches(prepared))
+            keys.addAll(createQuery(batch, keyHead(), true, kClass).getResultList());
+
+        return keys;
+    }
+
+    @Override
+    public List<Row> project(String... attributes)
+    {
+        if (attributes.length == 0)
+            throw new IllegalArgumentException("At least one attribute must be projected.");
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return new ArrayList<>(0);
+
+        String head = String.format("SELECT %s FROM %s %s", projection(attributes), eClass.getSimpleName(), prefix);
+        if (attributes.length == 1) {
+            List<Object> results = createQuery(prepared, head, true, Object.class)
+                    .setMaxResults(this.limit)
+                    .setFirstResult(this.skip)
+                    .getResultList();
+
+            List<Row> rows = new ArrayList<>(results.size());
+            for (Object result : results)
+                rows.add(new Row(attributes, new Object[]{result}));
+
+            return rows;
+        }
+
+        List<Object[]> results = createQuery(prepared, head, true, Object[].class)
+                .setMaxResults(this.limit)
+                .setFirstResult(this.skip)
+                .getResultList();
+
+        List<Row> rows = new ArrayList<>(results.size());
+        for (Object[] result : results)
+            rows.add(new Row(attributes, result));
+
+        return rows;
+    }
+
+    @Override
+    public <V> List<V> project(Class<V> vClass, String... attributes)
+    {
+        if (attributes.length == 0)
+            throw new IllegalArgumentException("At least one attribute must be projected.");
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return new ArrayList<>(0);
+
+        return createQuery(prepared, String.format("SELECT NEW %s(%s) FROM %s %s",
+                                                   vClass.getName(),
+                                                   projection(attributes),
+                                                   eClass.getSimpleName(),
+                                                   prefix), true, vClass)
+                .setMaxResults(this.limit)
+                .setFirstResult(this.skip)
+                .getResultList();
+    }
+
+    /**
+     * Chunks the results in the query, providing each chunk to the provided callback. The chunks are retrieved using
+     * keyset pagination, so each chunk is retrieved in constant time, and modifications made by the chunker to
+     * previous chunks do not cause results to be skipped or repeated. The results skipped by the query are passed
+     * using a single offset seek before the first chunk is retrieved.
+     *
+     * @param chunkSize The number of results in each chunk.
+     * @param chunker   The The handler that the chunks are provided to.
+     * @return {@code true} when the chunker was not stopped prematurely, and therefor ran through all the results
+     * of the query, {@code false} otherwise.
+     */
     @Override
     public boolean chunk(int chunkSize, Chunker<E> chunker)
     {
+        if (writeEntityManager != null)
+            return copy(writeEntityManager).chunk(chunkSize, chunker);
+
         MutableChunk<E> chunk   = new MutableChunk<>();
         Stopper         stopper = new Stopper();
+        Cursor          cursor  = this.after == null ? Cursor.first() : this.after;
+        if (this.skip > 0) {
+            cursor = seekSkipped(cursor);
+            if (cursor == null)
+                return true;
+        }
 
         for (int chunkNumber = 1; !stopper.stopped; chunkNumber++) {
+            CursorPage<E> page = getPageAfter(chunkSize, cursor);
             chunk.index = chunkNumber - 1;
             chunk.position = chunkNumber;
-            chunk.results = getPage(chunkSize, chunkNumber);
+            chunk.results = page.getResults();
             if (chunk.results.isEmpty())
                 return true;
 
             chunker.handle(chunk, stopper);
             entityManager.flush();
             entityManager.clear();
+
+            if (!page.hasNext())
+                return !stopper.stopped;
+
+            cursor = page.getNext();
         }
 
         return false;
     }
 
+    /**
+     * Returns the cursor positioned after the results skipped by the query, following the provided {@code cursor}.
+     * The skipped results are passed using a single offset query, ordered like the keyset pagination.
+     *
+     * @param cursor The cursor the skipped results follow.
+     * @return The cursor positioned after the skipped results, {@code null} when the query has no more results than
+     * it skips.
+     */
+    private Cursor seekSkipped(Cursor cursor)
+    {
+        JpaRepositoryQuery<K, E> query = (JpaRepositoryQuery<K, E>) copy();
+        query.after = cursor;
+        query.skip = 0;
+
+        Prepared prepared = query.prepare();
+        if (prepared.empty)
+            return null;
+
+        List<E> results = query.createDataQuery(prepared)
+                               .setFirstResult(this.skip - 1)
+                               .setMaxResults(1)
+                               .getResultList();
+
+        return results.isEmpty() ? null : cursor(results.get(0), keysetOrders(kAttribute));
+    }
+
+    /**
+     * Deletes all the entities matching the where conditionals of the query using a single {@code DELETE} statement.
+     * When a limit, a number of results to skip or a cursor is set, the keys of the entities in that range are
+     * selected first, and the entities are deleted in batches of {@link #IN_BATCH_SIZE} keys. Pending changes are
+     * flushed before the entities are deleted, while entities already loaded by the entity manager are not detached.
+     *
+     * @return The number of deleted entities.
+     */
+    @Override
+    public int delete()
+    {
+        if (writeEntityManager != null)
+            return copy(writeEntityManager).delete();
+
+        return executeBulk(String.format("DELETE FROM %s %s", eClass.getSimpleName(), prefix), new ArrayList<>());
+    }
+
+    /**
+     * Updates all the entities matching the where conditionals of the query using a single {@code UPDATE} statement.
+     * When a limit, a number of results to skip or a cursor is set, the keys of the entities in that range are
+     * selected first, and the entities are updated in batches of {@link #IN_BATCH_SIZE} keys. Pending changes are
+     * flushed before the entities are updated, while entities already loaded by the entity manager are not refreshed.
+     *
+     * @param assignments The new values mapped to the attributes to assign them to.
+     * @return The number of updated entities.
+     * @throws IllegalArgumentException When no assignments are provided, or when the key attribute is assigned.
+     */
+    @Override
+    public int update(Map<String, Object> assignments)
+    {
+        if (assignments.isEmpty())
+            throw new IllegalArgumentException("At least one attribute must be assigned.");
+        if (assignments.containsKey(kAttribute))
+            throw new IllegalArgumentException("The key attribute cannot be updated.");
+        if (writeEntityManager != null)
+            return copy(writeEntityManager).update(assignments);
+
+        StringBuilder head   = new StringBuilder(String.format("UPDATE %s %s SET ", eClass.getSimpleName(), prefix));
+        List<Object>  values = new ArrayList<>(assignments.size());
+        for (Map.Entry<String, Object> assignment : assignments.entrySet()) {
+            if (head.charAt(head.length() - 1) != ' ')
+                head.append(", ");
+
+            head.append(prefix(assignment.getKey()));
+            if (assignment.getValue() == null) {
+                head.append(" = NULL");
+            } else {
+                values.add(assignment.getValue());
+                head.append(" = :assignment_");
+                head.append(values.size());
+            }
+        }
+
+        return executeBulk(head.toString(), values);
+    }
+
+    /**
+     * Executes the provided bulk statement upon the entities matching the where conditionals of the query.
+     *
+     * @param head        The head of the statement, containing the delete or update clauses.
+     * @param assignments The values bound to the {@code assignment_n} parameters in the head.
+     * @return The number of affected entities.
+     */
+    private int executeBulk(String head, List<Object> assignments)
+    {
+        Prepared prepared = prepare();
+        if (prepared.empty)
+            return 0;
+
+        entityManager.flush();
+
+        int affected = 0;
+        if (skip == 0 && limit == Integer.MAX_VALUE && after == null) {
+            for (Prepared batch : prepareBatches(prepared)) {
+                javax.persistence.Query statement = createStatement(batch, head);
+                bindAssignments(statement, assignments);
+                affected += statement.executeUpdate();
+            }
+        } else {
+            List<K> keys = createQuery(prepared, keyHead(), true, kClass)
+                    .setMaxResults(this.limit)
+                    .setFirstResult(this.skip)
+                    .getResultList();
+
+            String statement = String.format("%s WHERE %s IN :keys", head, prefix(kAttribute));
+            for (List<K> batch : partition(keys, IN_BATCH_SIZE)) {
+                javax.persistence.Query batchStatement = entityManager.createQuery(statement);
+                batchStatement.setParameter("keys", batch);
+                bindAssignments(batchStatement, assignments);
+                affected += batchStatement.executeUpdate();
+            }
+        }
+
+        if (affected > 0 && bulkWriteListener != null)
+            bulkWriteListener.run();
+
+        return affected;
+    }
+
+    private void bindAssignments(javax.persistence.Query statement, List<Object> assignments)
+    {
+        for (int i = 0; i < assignments.size(); i++)
+            statement.setParameter("assignment_" + (i + 1), assignments.get(i));
+    }
+
+    /**
+     * Sets the action performed after the query deletes or updates entities using bulk statements. Bulk statements
+     * bypass the entity manager, so the action can be used to remove the affected entities from caches.
+     *
+     * @param listener The action to perform, {@code null} to perform no action.
+     */
+    public void setBulkWriteListener(Runnable listener)
+    {
+        this.bulkWriteListener = listener;
+    }
+
+    /**
+     * Sets the entity manager that entities are deleted, updated and chunked upon. Used when the query is called upon
+     * an entity manager connected to a read-only replica, so the operations writing entities reach the primary data
+     * source.
+     *
+     * @param writeEntityManager The entity manager, {@code null} to use the entity manager the query is called upon.
+     */
+    public void setWriteEntityManager(EntityManager writeEntityManager)
+    {
+        this.writeEntityManager = writeEntityManager;
+    }
+
+    /**
+     * Spliterator reading the results of a {@link ScrollableResults}, detaching each result once processed.
+     */
+    private class ScrollingSpliterator extends Spliterators.AbstractSpliterator<E>
+    {
+
+        /**
+         * The results to read.
+         */
+        private final ScrollableResults results;
+
+        /**
+         * Creates a new {@link ScrollingSpliterator}.
+         *
+         * @param results The results to read.
+         */
+        private ScrollingSpliterator(ScrollableResults results)
+        {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.results = results;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action)
+        {
+            if (!results.next())
+                return false;
+
+            E entity = eClass.cast(results.get(0));
+            try {
+                action.accept(entity);
+            } finally {
+                entityManager.detach(entity);
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * The where conditionals and order clauses of a query, prepared for compilation.
+     */
+    private static class Prepared
+    {
+
+        /**
+         * The optimized where conditionals.
+         */
+        private final List<Conditional> wheres;
+
+        /**
+         * The order clauses.
+         */
+        private final List<Order> orders;
+
+        /**
+         * The normalized shape of the where conditionals.
+         */
+        private final String shape;
+
+        /**
+         * The values to bind to the parameters of the where conditionals.
+         */
+        private final List<Object> values;
+
+        /**
+         * Whether or not the where conditionals can never hold, in which case the query has no results, and need not
+         * be executed.
+         */
+        private final boolean empty;
+
+        private Prepared(List<Conditional> wheres, List<Order> orders, String shape, List<Object> values, boolean empty)
+        {
+            this.wheres = wheres;
+            this.orders = orders;
+            this.shape = shape;
+            this.values = values;
+            this.empty = empty;
+        }
+    }
+
     public class Stopper implements Runnable
     {
 
@@ -315,64 +928,493 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
         }
     }
 
+    /**
+     * Executes the query on the asynchronous executor, using a new entity manager created from the entity manager
+     * factory of this query. The returned entities are therefor detached, and the query does not see changes made in
+     * the uncommitted transaction of this query.
+     *
+     * @return The future completed with all the results in the query.
+     */
+    @Override
+    public CompletableFuture<List<E>> getAsync()
+    {
+        return async(RepositoryQuery::get);
+    }
+
+    /**
+     * Counts the number of results on the asynchronous executor, using a new entity manager created from the entity
+     * manager factory of this query. The query does not see changes made in the uncommitted transaction of this query.
+     *
+     * @return The future completed with the number of results.
+     */
+    @Override
+    public CompletableFuture<Long> countAsync()
+    {
+        return async(RepositoryQuery::count);
+    }
+
+    /**
+     * Executes the query on the asynchronous executor, using a new entity manager created from the entity manager
+     * factory of this query. The returned entities are therefor detached, and the query does not see changes made in
+     * the uncommitted transaction of this query.
+     *
+     * @param pageSize   The number of results on a single page. Where {@code pageSize >= 1}.
+     * @param pageNumber The page to return the results from. Where {@code pageNumber >= 1}.
+     * @return The future completed with the results in the page.
+     */
+    @Override
+    public CompletableFuture<List<E>> getPageAsync(int pageSize, int pageNumber)
+    {
+        return async(query -> query.getPage(pageSize, pageNumber));
+    }
+
+    /**
+     * Performs the provided operation on a copy of this query on the asynchronous executor. The copy uses a new
+     * entity manager, that is closed when the operation completes.
+     *
+     * @param operation The operation to perform.
+     * @param <T>       The type of the result of the operation.
+     * @return The future completed with the result of the operation.
+     */
+    private <T> CompletableFuture<T> async(Function<JpaRepositoryQuery<K, E>, T> operation)
+    {
+        EntityManagerFactory     factory  = entityManager.getEntityManagerFactory();
+        JpaRepositoryQuery<K, E> snapshot = (JpaRepositoryQuery<K, E>) copy();
+
+        return CompletableFuture.supplyAsync(() -> {
+            EntityManager asyncManager = factory.createEntityManager();
+            try {
+                return operation.apply(snapshot.copy(asyncManager));
+            } finally {
+                asyncManager.close();
+            }
+        }, asyncExecutor);
+    }
+
+    /**
+     * Sets the executor executing the asynchronous queries of all {@link JpaRepositoryQuery} instances.
+     *
+     * @param executor The executor executing the asynchronous queries.
+     */
+    public static void setAsyncExecutor(Executor executor)
+    {
+        asyncExecutor = executor;
+    }
+
+    /**
+     * Shuts down the executor executing the asynchronous queries, when it is an {@link ExecutorService}, so its
+     * threads do not outlive the application. Queries already submitted are still executed. The executor is replaced
+     * by a new default executor, which starts its threads when the next asynchronous query is executed.
+     */
+    public static void shutdownAsyncExecutor()
+    {
+        Executor executor = asyncExecutor;
+        asyncExecutor = createAsyncExecutor();
+        if (executor instanceof ExecutorService)
+            ((ExecutorService) executor).shutdown();
+    }
+
+    /**
+     * Creates the default executor executing the asynchronous queries. The executor uses a bounded number of daemon
+     * threads and a bounded queue. When the queue is full, the query is executed by the calling thread.
+     *
+     * @return The default executor.
+     */
+    private static Executor createAsyncExecutor()
+    {
+        int threads = Math.max(2, Math.min(16, Runtime.getRuntime().availableProcessors() * 2));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads,
+                                                             threads,
+                                                             60,
+                                                             TimeUnit.SECONDS,
+                                                             new ArrayBlockingQueue<>(1024),
+                                                             createAsyncThreadFactory(),
+                                                             new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    private static ThreadFactory createAsyncThreadFactory()
+    {
+        AtomicInteger counter = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, "repository-query-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
     @Override
     public RepositoryQuery<K, E> copy()
     {
-        return new JpaRepositoryQuery<>(this.entityManager,
-                                        this.kClass,
-                                        this.kAttribute,
-                                        this.eClass,
-                                        this.prefix,
-                                        new ArrayList<>(this.wheres),
-                                        new ArrayList<>(this.orders),
-                                        this.skip,
-                                        this.limit);
+        JpaRepositoryQuery<K, E> copy = copy(this.entityManager);
+        copy.writeEntityManager = this.writeEntityManager;
+        return copy;
     }
 
-    private TypedQuery<Long> createCountQuery(EntityManager entityManager)
+    /**
+     * Creates a copy of this query, performing its operations on the provided entity manager.
+     *
+     * @param entityManager The entity manager the copy is called upon.
+     * @return The newly created copy.
+     */
+    private JpaRepositoryQuery<K, E> copy(EntityManager entityManager)
     {
-        TypedQuery<Long> query = entityManager.createQuery(String.format("SELECT count(%s) FROM %s %s %s",
-                                                                         prefix,
-                                                                         eClass.getSimpleName(),
-                                                                         prefix,
-                                                                         generateJPQL()), Long.class);
-        bindJPQL(query);
+        JpaRepositoryQuery<K, E> copy = new JpaRepositoryQuery<>(entityManager,
+                                                                 this.kClass,
+                                                                 this.kAttribute,
+                                                                 this.eClass,
+                                                                 this.prefix,
+                                                                 new ArrayList<>(this.wheres),
+                                                                 new ArrayList<>(this.orders),
+                                                                 this.skip,
+                                                                 this.limit);
+
+        copy.after = this.after;
+        copy.bulkWriteListener = this.bulkWriteListener;
+        return copy;
+    }
 
-        return query;
+    /**
+     * Returns the number of distinct query shapes compiled by all {@link JpaRepositoryQuery} instances.
+     *
+     * @return The number of distinct query shapes currently compiled.
+     */
+    public static int getCompiledQueryCount()
+    {
+        return compiledQueries.size();
+    }
+
+    private TypedQuery<E> createDataQuery(Prepared prepared)
+    {
+        return createQuery(prepared, dataHead(), true, eClass);
+    }
+
+    private String dataHead()
+    {
+        return String.format("SELECT %s FROM %s %s", prefix, eClass.getSimpleName(), prefix);
     }
 
-    private TypedQuery<E> createDataQuery(EntityManager entityManager)
+    private String keyHead()
     {
-        TypedQuery<E> query = entityManager.createQuery(String.format("SELECT %s FROM %s %s %s",
-                                                                      prefix,
-                                                                      eClass.getSimpleName(),
-                                                                      prefix,
-                                                                      generateJPQL()), eClass);
+        return String.format("SELECT %s FROM %s %s", prefix(kAttribute), eClass.getSimpleName(), prefix);
+    }
 
-        bindJPQL(query);
+    private String countHead()
+    {
+        return String.format("SELECT count(%s) FROM %s %s", prefix, eClass.getSimpleName(), prefix);
+    }
+
+    /**
+     * Creates a query selecting using the provided {@code head}, constrained by the where conditionals registered
+     * with this query. The query string is only compiled the first time a query of the same shape is created, on
+     * subsequent calls only the values of the query are bound.
+     *
+     * @param prepared The prepared where conditionals and order clauses of the query.
+     * @param head     The head of the query, containing the select and from clauses.
+     * @param ordered  Whether or not the order clauses registered with the query should be included.
+     * @param tClass   The type of the results of the query.
+     * @param <T>      The type of the results of the query.
+     * @return The created query, with all values bound.
+     */
+    private <T> TypedQuery<T> createQuery(Prepared prepared, String head, boolean ordered, Class<T> tClass)
+    {
+        return createQuery(prepared, head, "", ordered, tClass);
+    }
+
+    /**
+     * Creates a query selecting using the provided {@code head}, constrained by the provided prepared where
+     * conditionals, followed by the provided {@code tail}.
+     *
+     * @param prepared The prepared where conditionals and order clauses of the query.
+     * @param head     The head of the query, containing the select and from clauses.
+     * @param tail     The clauses following the where clause, like the group by clause.
+     * @param ordered  Whether or not the order clauses registered with the query should be included.
+     * @param tClass   The type of the results of the query.
+     * @param <T>      The type of the results of the query.
+     * @return The created query, with all values bound.
+     * @see JpaRepositoryQuery#createQuery(Prepared, String, boolean, Class)
+     */
+    private <T> TypedQuery<T> createQuery(Prepared prepared, String head, String tail, boolean ordered, Class<T> tClass)
+    {
+        List<Order> orders = ordered ? prepared.orders : Collections.emptyList();
+
+        StringBuilder shape = new StringBuilder(head);
+        shape.append(prepared.shape);
+        normalizeOrders(shape, orders);
+        shape.append('|');
+        shape.append(tail);
+
+        CompiledQuery compiled = compiledQueries.get(shape.toString(),
+                                                     () -> compile(head, prepared.wheres, orders, tail));
+        TypedQuery<T> query    = entityManager.createQuery(compiled.query, tClass);
+        compiled.bind(query, prepared.values);
 
         return query;
     }
 
-    private String generateJPQL()
+    /**
+     * Creates a statement - like a delete statement - using the provided {@code head}, constrained by the provided
+     * prepared where conditionals. The statement string is compiled once per shape, like the queries created using
+     * {@link JpaRepositoryQuery#createQuery(Prepared, String, String, boolean, Class)}.
+     *
+     * @param prepared The prepared where conditionals of the statement.
+     * @param head     The head of the statement.
+     * @return The created statement, with all values bound.
+     */
+    private javax.persistence.Query createStatement(Prepared prepared, String head)
+    {
+        String                  shape     = head + prepared.shape + '|';
+        CompiledQuery           compiled  = compiledQueries.get(shape, () -> compile(head,
+                                                                                      prepared.wheres,
+                                                                                      Collections.emptyList(),
+                                                                                      ""));
+        javax.persistence.Query statement = entityManager.createQuery(compiled.query);
+        compiled.bind(statement, prepared.values);
+
+        return statement;
+    }
+
+    /**
+     * Prepares the where conditionals and order clauses registered with the query for compilation. The where
+     * conditionals are optimized and normalized once, so the result can be used to create multiple queries.
+     *
+     * @return The prepared where conditionals and order clauses.
+     */
+    private Prepared prepare()
+    {
+        List<Conditional> wheres = this.wheres;
+        List<Order>       orders = this.orders;
+        if (after != null) {
+            orders = keysetOrders(kAttribute);
+            if (!after.isFirst()) {
+                wheres = new ArrayList<>(this.wheres);
+                wheres.add(seek(orders, after));
+            }
+        }
+
+        wheres = QueryOptimizer.optimize(wheres);
+
+        return prepare(wheres, orders, QueryOptimizer.isFalse(wheres));
+    }
+
+    private Prepared prepare(List<Conditional> wheres, List<Order> orders, boolean empty)
+    {
+        StringBuilder shape  = new StringBuilder();
+        List<Object>  values = new ArrayList<>();
+        normalizeWheres(shape, values, wheres);
+
+        return new Prepared(wheres, orders, shape.toString(), values, empty);
+    }
+
+    /**
+     * Prepares one statement per batch of the first {@code IN} collection larger than {@link #IN_BATCH_SIZE}, that
+     * must hold for an entity to match the where conditionals. The batches hold distinct values, so the results of
+     * the statements are disjoint, and can be merged or summed. When the where conditionals contain no such
+     * collection, the provided prepared statement is returned as the only batch.
+     *
+     * @param prepared The prepared where conditionals to split.
+     * @return The prepared where conditionals of each batch.
+     */
+    private List<Prepared> prepareBatches(Prepared prepared)
+    {
+        Conditional split = null;
+        for (Conditional where : prepared.wheres)
+            if ((split = findSplittable(where)) != null)
+                break;
+
+        if (split == null)
+            return Collections.singletonList(prepared);
+
+        Collection<?>  values  = new LinkedHashSet<>((Collection<?>) split.operation.arguments[0]);
+        List<Prepared> batches = new ArrayList<>(batches(values));
+        for (List<?> batch : partition(values, IN_BATCH_SIZE)) {
+            Conditional replacement = Conditional.op(new Operation(split.operation.attribute,
+                                                                   Operation.Type.IN,
+                                                                   new Object[]{batch}));
+            List<Conditional> wheres = new ArrayList<>(prepared.wheres.size());
+            for (Conditional where : prepared.wheres)
+                wheres.add(replace(where, split, replacement));
+
+            batches.add(prepare(wheres, prepared.orders, prepared.empty));
+        }
+
+        return batches;
+    }
+
+    /**
+     * Finds the first {@code IN} operation larger than {@link #IN_BATCH_SIZE} within the provided conditional, that
+     * is only combined with other conditionals using {@code AND}.
+     *
+     * @param conditional The conditional to search.
+     * @return The found operation, {@code null} when no operation was found.
+     */
+    private static Conditional findSplittable(Conditional conditional)
+    {
+        if (conditional.type == Conditional.Type.AND) {
+            Conditional left = findSplittable(conditional.left);
+            return left != null ? left : findSplittable(conditional.right);
+        }
+
+        if (conditional.type == Conditional.Type.OP && conditional.operation.type == Operation.Type.IN) {
+            Object argument = conditional.operation.arguments[0];
+            if (argument instanceof Collection && ((Collection<?>) argument).size() > IN_BATCH_SIZE)
+                return conditional;
+        }
+
+        return null;
+    }
+
+    private static Conditional replace(Conditional conditional, Conditional target, Conditional replacement)
+    {
+        if (conditional == target)
+            return replacement;
+        if (conditional.type != Conditional.Type.AND)
+            return conditional;
+
+        Conditional left  = replace(conditional.left, target, replacement);
+        Conditional right = replace(conditional.right, target, replacement);
+        return left == conditional.left && right == conditional.right ? conditional : Conditional.and(left, right);
+    }
+
+    /**
+     * Writes the shape of the provided where clauses to the provided {@code shape}, while collecting the values to
+     * bind in the provided {@code values}. The values are collected in the order the parameters are generated by
+     * {@link JpaRepositoryQuery#compile(String, List, List, String)}.
+     *
+     * @param shape  The builder the shape of the query is written to.
+     * @param values The list the values of the query are added to.
+     * @param wheres The where conditionals to normalize.
+     */
+    private void normalizeWheres(StringBuilder shape, List<Object> values, List<Conditional> wheres)
+    {
+        shape.append('|');
+        for (Conditional conditional : wheres) {
+            normalizeConditional(shape, values, conditional);
+            shape.append(';');
+        }
+    }
+
+    /**
+     * Writes the shape of the provided order clauses to the provided {@code shape}.
+     *
+     * @param shape  The builder the shape of the query is written to.
+     * @param orders The order clauses to normalize.
+     */
+    private void normalizeOrders(StringBuilder shape, List<Order> orders)
+    {
+        shape.append('|');
+        for (Order order : orders) {
+            shape.append(order.attribute);
+            shape.append(' ');
+            shape.append(order.direction);
+            shape.append(',');
+        }
+    }
+
+    private void normalizeConditional(StringBuilder shape, List<Object> values, Conditional conditional)
+    {
+        switch (conditional.type) {
+            case OP:
+                normalizeOpCondition(shape, values, conditional.operation);
+                return;
+            case AND:
+            case OR:
+                shape.append(conditional.type);
+                shape.append('(');
+                normalizeConditional(shape, values, conditional.left);
+                shape.append(',');
+                normalizeConditional(shape, values, conditional.right);
+                shape.append(')');
+                return;
+            case TRUE:
+            case FALSE:
+                shape.append(conditional.type);
+                return;
+            default:
+                throw new RepositoryQueryCompileException("Missing condition type.");
+        }
+    }
+
+    private void normalizeOpCondition(StringBuilder shape, List<Object> values, Operation operation)
+    {
+        Operation.Type type = operation.type;
+
+        shape.append(type);
+        shape.append('(');
+        shape.append(operation.attribute);
+        shape.append(')');
+
+        switch (type) {
+            case EQ:
+            case NOT:
+            case GT:
+            case LT:
+            case GTOE:
+            case LTOE:
+                values.add(argument(operation, 0));
+                return;
+            case IN:
+            case NOT_IN: {
+                Collection<?> a = (Collection<?>) argument(operation, 0);
+                if (a.size() > 0) {
+                    shape.append('+');
+                    shape.append(batches(a));
+                    values.addAll(partition(a, IN_BATCH_SIZE));
+                } else {
+                    shape.append('-');
+                }
+                return;
+            }
+            case BETWEEN:
+            case OUTSIDE:
+                values.add(argument(operation, 0));
+                values.add(argument(operation, 1));
+                return;
+            case LIKE:
+            case NOT_LIKE:
+                values.add('%' + argument(operation, 0).toString() + '%');
+                return;
+        }
+
+        throw new RepositoryQueryCompileException("Unknown operation type " + type.toString());
+    }
+
+    /**
+     * Compiles the provided where and order clauses into a JPQL query.
+     *
+     * @param head   The head of the query, containing the select and from clauses.
+     * @param wheres The where conditionals to compile.
+     * @param orders The order clauses to compile.
+     * @return The compiled query.
+     */
+    private CompiledQuery compile(String head, List<Conditional> wheres, List<Order> orders, String tail)
     {
-        StringBuilder    builder          = new StringBuilder();
+        StringBuilder    builder          = new StringBuilder(head);
         ParameterCounter parameterCounter = new ParameterCounter();
 
         if (wheres.size() > 0)
-            generateWheres(builder, parameterCounter);
+            generateWheres(builder, parameterCounter, wheres);
+        builder.append(tail);
         if (orders.size() > 0)
-            generateOrders(builder, parameterCounter);
+            generateOrders(builder, orders);
 
-        return builder.toString();
+        String[] parameters = new String[parameterCounter.x];
+        for (int i = 0; i < parameters.length; i++)
+            parameters[i] = "parameter_" + (i + 1);
+
+        return new CompiledQuery(builder.toString(), parameters);
     }
 
-    private void generateWheres(StringBuilder builder, ParameterCounter parameterCounter)
+    private void generateWheres(StringBuilder builder, ParameterCounter parameterCounter, List<Conditional> wheres)
     {
-        builder.append("WHERE true = true ");
-        for (Conditional conditional : wheres) {
-            builder.append(" AND ");
-            generateConditional(builder, parameterCounter, conditional);
+        builder.append(" WHERE ");
+        for (int i = 0; i < wheres.size(); i++) {
+            if (i > 0)
+                builder.append(" AND ");
+            generateConditional(builder, parameterCounter, wheres.get(i));
         }
     }
 
@@ -388,6 +1430,12 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
             case OR:
                 generateOrCondition(builder, parameterCounter, conditional.left, conditional.right);
                 return;
+            case TRUE:
+                builder.append(" true = true ");
+                return;
+            case FALSE:
+                builder.append(" true = false ");
+                return;
             default:
                 throw new RepositoryQueryCompileException("Missing condition type.");
         }
@@ -396,22 +1444,37 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
     private void generateAndCondition(StringBuilder builder, ParameterCounter counter, Conditional left, Conditional right)
     {
         builder.append('(');
-        generateConditional(builder, counter, left);
+        generateChain(builder, counter, Conditional.Type.AND, left);
         builder.append(" AND ");
-        generateConditional(builder, counter, right);
+        generateChain(builder, counter, Conditional.Type.AND, right);
         builder.append(')');
     }
 
     private void generateOrCondition(StringBuilder builder, ParameterCounter counter, Conditional left, Conditional right)
     {
-
         builder.append('(');
-        generateConditional(builder, counter, left);
+        generateChain(builder, counter, Conditional.Type.OR, left);
         builder.append(" OR ");
-        generateConditional(builder, counter, right);
+        generateChain(builder, counter, Conditional.Type.OR, right);
         builder.append(')');
     }
 
+    /**
+     * Generates the provided operand of a chain of conditionals of the provided type. Operands of the same type are
+     * generated without parentheses, so {@code (a AND b) AND c} is generated as {@code (a AND b AND c)}.
+     */
+    private void generateChain(StringBuilder builder, ParameterCounter counter, Conditional.Type type, Conditional operand)
+    {
+        if (operand.type != type) {
+            generateConditional(builder, counter, operand);
+            return;
+        }
+
+        generateChain(builder, counter, type, operand.left);
+        builder.append(type == Conditional.Type.AND ? " AND " : " OR ");
+        generateChain(builder, counter, type, operand.right);
+    }
+
     private void generateOpCondition(StringBuilder builder, ParameterCounter counter, Operation operation)
     {
         Operation.Type type = operation.type;
@@ -448,22 +1511,18 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
                 builder.append(parameter(counter));
                 return;
             case IN: {
-                Collection a = (Collection) operation.arguments[0];
+                Collection<?> a = (Collection<?>) operation.arguments[0];
                 if (a.size() > 0) {
-                    builder.append(prefix(operation.attribute));
-                    builder.append(" IN ");
-                    builder.append(parameter(counter));
+                    generateInBatches(builder, counter, operation.attribute, " IN ", " OR ", batches(a));
                 } else {
                     builder.append(" true = false ");
                 }
                 return;
             }
             case NOT_IN:
-                Collection a = (Collection) operation.arguments[0];
+                Collection<?> a = (Collection<?>) operation.arguments[0];
                 if (a.size() > 0) {
-                    builder.append(prefix(operation.attribute));
-                    builder.append(" NOT IN ");
-                    builder.append(parameter(counter));
+                    generateInBatches(builder, counter, operation.attribute, " NOT IN ", " AND ", batches(a));
                 } else {
                     builder.append(" true = true ");
                 }
@@ -497,7 +1556,52 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
         throw new RepositoryQueryCompileException("Unknown operation type " + type.toString());
     }
 
-    private void generateOrders(StringBuilder builder, ParameterCounter parameterCounter)
+    private void generateInBatches(StringBuilder builder,
+                                   ParameterCounter counter,
+                                   String attribute,
+                                   String operator,
+                                   String separator,
+                                   int batches)
+    {
+        builder.append('(');
+        for (int i = 0; i < batches; i++) {
+            if (i > 0)
+                builder.append(separator);
+            builder.append(prefix(attribute));
+            builder.append(operator);
+            builder.append(parameter(counter));
+        }
+        builder.append(')');
+    }
+
+    private static int batches(Collection<?> collection)
+    {
+        return (collection.size() + IN_BATCH_SIZE - 1) / IN_BATCH_SIZE;
+    }
+
+    /**
+     * Partitions the provided values into batches of at most {@code size} values each, retaining the iteration order
+     * of the values.
+     *
+     * @param values The values to partition.
+     * @param size   The maximum number of values in each batch.
+     * @param <T>    The type of the values.
+     * @return The batches.
+     */
+    public static <T> List<List<T>> partition(Collection<T> values, int size)
+    {
+        List<T> list = values instanceof List ? (List<T>) values : new ArrayList<>(values);
+        if (list.size() <= size)
+            return Collections.singletonList(list);
+
+        List<List<T>> batches = new ArrayList<>((list.size() + size - 1) / size);
+        for (int i = 0; i < list.size(); i += size)
+            batches.add(list.subList(i, Math.min(i + size, list.size())));
+
+        return batches;
+    }
+
+    private void generateOrders(StringBuilder builder, List<Order> orders)
     {
         builder.append(" ORDER BY ");
         int size = orders.size();
@@ -511,116 +1615,41 @@ public class JpaRepositoryQuery<K extends Comparable<K>, E extends RepositoryEnt
         }
     }
 
-    private void bindJPQL(TypedQuery<? extends Object> query)
-    {
-        ParameterCounter parameterCounter = new ParameterCounter();
-
-        if (wheres.size() > 0)
-            bindWheres(query, parameterCounter);
-    }
-
-    private void bindWheres(TypedQuery<? extends Object> query, ParameterCounter parameterCounter)
+    private String prefix(String attribute)
     {
-        for (Conditional conditional : wheres) {
-            bindConditional(query, parameterCounter, conditional);
-        }
+        return prefix + '.' + attribute;
     }
 
-    private void bindConditional(TypedQuery<? extends Object> query, ParameterCounter parameterCounter, Conditional conditional)
+    private String aggregate(Aggregate aggregate, String attribute)
     {
-        switch (conditional.type) {
-            case OP:
-                bindOpCondition(query, parameterCounter, conditional.operation);
-                return;
-            case AND:
-                bindAndCondition(query, parameterCounter, conditional.left, conditional.right);
-                return;
-            case OR:
-                bindOrCondition(query, parameterCounter, conditional.left, conditional.right);
-                return;
+        switch (aggregate) {
+            case COUNT:
+                return "count(" + prefix(attribute) + ")";
+            case COUNT_DISTINCT:
+                return "count(DISTINCT " + prefix(attribute) + ")";
+            case SUM:
+                return "sum(" + prefix(attribute) + ")";
+            case AVG:
+                return "avg(" + prefix(attribute) + ")";
+            case MIN:
+                return "min(" + prefix(attribute) + ")";
+            case MAX:
+                return "max(" + prefix(attribute) + ")";
             default:
-                throw new RepositoryQueryCompileException("Missing condition type.");
+                throw new RepositoryQueryCompileException("Missing aggregate type.");
         }
     }
 
-    private void bindAndCondition(
-            TypedQuery<? extends Object> query, ParameterCounter counter, Conditional left, Conditional
-            right)
-    {
-        bindConditional(query, counter, left);
-        bindConditional(query, counter, right);
-    }
-
-    private void bindOrCondition(
-            TypedQuery<? extends Object> query, ParameterCounter counter, Conditional left, Conditional
-            right)
+    private String projection(String[] attributes)
     {
-        bindConditional(query, counter, left);
-        bindConditional(query, counter, right);
-    }
-
-    private void bindOpCondition(TypedQuery<? extends Object> query, ParameterCounter counter, Operation operation)
-    {
-        Operation.Type type = operation.type;
-
-        switch (type) {
-            case EQ:
-                bind(query, counter, operation.attribute, argument(operation, 0));
-                return;
-            case NOT:
-                bind(query, counter, operation.attribute, argument(operation, 0));
-                return;
-            case GT:
-                bind(query, counter, operation.attribute, argument(operation, 0));
-                return;
-            case LT:
-                bind(query, counter, operation.attribute, argument(operation, 0));
-                return;
-            case GTOE:
-                bind(query, counter, operation.attribute, argument(operation, 0));
-                return;
-            case LTOE:
-                bind(query, counter, operation.attribute, argument(operation, 0));
-                return;
-            case IN: {
-                Collection a = (Collection) operation.arguments[0];
-                if (a.size() > 0)
-                    bind(query, counter, operation.attribute, argument(operation, 0));
-                return;
-            }
-            case NOT_IN: {
-                Collection a = (Collection) operation.arguments[0];
-                if (a.size() > 0)
-                    bind(query, counter, operation.attribute, argument(operation, 0));
-                return;
-            }
-            case BETWEEN:
-                bind(query, counter, operation.attribute, argument(operation, 0));
-                bind(query, counter, operation.attribute, argument(operation, 1));
-                return;
-            case OUTSIDE:
-                bind(query, counter, operation.attribute, argument(operation, 0));
-                bind(query, counter, operation.attribute, argument(operation, 1));
-                return;
-            case LIKE:
-                bind(query, counter, operation.attribute, '%' + argument(operation, 0).toString() + '%');
-                return;
-            case NOT_LIKE:
-                bind(query, counter, operation.attribute, '%' + argument(operation, 0).toString() + '%');
-                return;
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < attributes.length; i++) {
+            if (i > 0)
+                builder.append(", ");
+            builder.append(prefix(attributes[i]));
         }
 
-        throw new RepositoryQueryCompileException("Unknown operation type " + type.toString());
-    }
-
-    private void bind(TypedQuery<? extends Object> query, ParameterCounter parameterCounter, String parameter, Object value)
-    {
-        query.setParameter("parameter_" + parameterCounter.next(), value);
-    }
-
-    private String prefix(String attribute)
-    {
-        return prefix + '.' + attribute;
+        return builder.toString();
     }
 
     private String parameter(ParameterCounter parameterCounter)
@@ -0,0 +1,99 @@
+package com.tvestergaard.start.data.repositories.base.queries;
+
+import java.util.List;
+
+/**
+ * Represents a page of results, together with the total number of results in the query.
+ *
+ * @param <E> The type of the results in the page.
+ * @see RepositoryQuery#getPageWithTotal(int, int)
+ */
+public class Page<E>
+{
+
+    /**
+     * The results in the page.
+     */
+    private final List<E> results;
+
+    /**
+     * The total number of results in the query.
+     */
+    private final long total;
+
+    /**
+     * The number of results on a single page.
+     */
+    private final int pageSize;
+
+    /**
+     * The number of the page, starts at {@code 1}.
+     */
+    private final int pageNumber;
+
+    /**
+     * Creates a new {@link Page}.
+     *
+     * @param results    The results in the page.
+     * @param total      The total number of results in the query.
+     * @param pageSize   The number of results on a single page.
+     * @param pageNumber The number of the page, starts at {@code 1}.
+     */
+    public Page(List<E> results, long total, int pageSize, int pageNumber)
+    {
+        this.results = results;
+        this.total = total;
+        this.pageSize = pageSize;
+        this.pageNumber = pageNumber;
+    }
+
+    /**
+     * Returns the results in the page.
+     *
+     * @return The results in the page.
+     */
+    public List<E> getResults()
+    {
+        return this.results;
+    }
+
+    /**
+     * Returns the total number of results in the query.
+     *
+     * @return The total number of results in the query.
+     */
+    public long getTotal()
+    {
+        return this.total;
+    }
+
+    /**
+     * Returns the number of results on a single page.
+     *
+     * @return The number of results on a single page.
+     */
+    public int getPageSize()
+    {
+        return this.pageSize;
+    }
+
+    /**
+     * Returns the number of the page.
+     *
+     * @return The number of the page, starts at {@code 1}.
+     */
+    public int getPageNumber()
+    {
+        return this.pageNumber;
+    }
+
+    /**
+     * Returns the total number of pages in the query.
+     *
+     * @return The total number of pages in the query.
+     */
+    public long getPageCount()
+    {
+        return (total + pageSize - 1) / pageSize;
+    }
+}
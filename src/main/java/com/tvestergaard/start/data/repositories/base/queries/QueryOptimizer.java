@@ -0,0 +1,229 @@
+package com.tvestergaard.start.data.repositories.base.queries;
+
+import com.tvestergaard.start.data.repositories.base.queries.tree.Conditional;
+import com.tvestergaard.start.data.repositories.base.queries.tree.Operation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites the where conditionals of a query into an equivalent, simpler form before the query is executed. The
+ * optimizer
+ * <ul>
+ * <li>folds constant conditionals, like {@code in} operations on empty collections,</li>
+ * <li>prunes branches that are always true, and collapses queries that are always false to {@link Conditional#FALSE},</li>
+ * <li>flattens nested {@code and} conditionals into separate where conditionals,</li>
+ * <li>and merges {@code eq} and {@code in} operations on the same attribute joined by {@code or} into a single
+ * {@code in} operation.</li>
+ * </ul>
+ */
+public class QueryOptimizer
+{
+
+    /**
+     * Optimizes the provided where conditionals, which must all hold for a result to match.
+     *
+     * @param wheres The where conditionals to optimize.
+     * @return The optimized where conditionals. An empty list when the conditionals always hold, a list containing
+     * only {@link Conditional#FALSE} when the conditionals never hold.
+     */
+    public static List<Conditional> optimize(List<Conditional> wheres)
+    {
+        List<Conditional> operands = new ArrayList<>(wheres.size());
+        for (Conditional conditional : wheres)
+            collect(Conditional.Type.AND, fold(conditional), operands);
+
+        List<Conditional> optimized = new ArrayList<>(operands.size());
+        for (Conditional operand : operands) {
+            if (operand.type == Conditional.Type.FALSE)
+                return Collections.singletonList(Conditional.FALSE);
+            if (operand.type != Conditional.Type.TRUE)
+                optimized.add(operand);
+        }
+
+        return optimized;
+    }
+
+    /**
+     * Checks whether or not the provided optimized where conditionals never hold.
+     *
+     * @param optimized The where conditionals returned from {@link QueryOptimizer#optimize(List)}.
+     * @return {@code true} when the where conditionals never hold, {@code false} otherwise.
+     */
+    public static boolean isFalse(List<Conditional> optimized)
+    {
+        return optimized.size() == 1 && optimized.get(0).type == Conditional.Type.FALSE;
+    }
+
+    private static Conditional fold(Conditional conditional)
+    {
+        switch (conditional.type) {
+            case TRUE:
+            case FALSE:
+                return conditional;
+            case OP:
+                return foldOperation(conditional);
+            case AND:
+                return foldAnd(conditional);
+            case OR:
+                return foldOr(conditional);
+            default:
+                throw new RepositoryQueryCompileException("Missing condition type.");
+        }
+    }
+
+    private static Conditional foldOperation(Conditional conditional)
+    {
+        Operation operation = conditional.operation;
+        if (operation.arguments.length == 0 || !(operation.arguments[0] instanceof Collection))
+            return conditional;
+
+        boolean empty = ((Collection<?>) operation.arguments[0]).isEmpty();
+        if (operation.type == Operation.Type.IN && empty)
+            return Conditional.FALSE;
+        if (operation.type == Operation.Type.NOT_IN && empty)
+            return Conditional.TRUE;
+
+        return conditional;
+    }
+
+    private static Conditional foldAnd(Conditional conditional)
+    {
+        List<Conditional> operands = new ArrayList<>();
+        collect(Conditional.Type.AND, conditional, operands);
+
+        List<Conditional> folded = new ArrayList<>(operands.size());
+        for (Conditional operand : operands) {
+            Conditional f = fold(operand);
+            if (f.type == Conditional.Type.FALSE)
+                return Conditional.FALSE;
+            if (f.type != Conditional.Type.TRUE)
+                folded.add(f);
+        }
+
+        return chain(Conditional.Type.AND, folded, Conditional.TRUE);
+    }
+
+    private static Conditional foldOr(Conditional conditional)
+    {
+        List<Conditional> operands = new ArrayList<>();
+        collect(Conditional.Type.OR, conditional, operands);
+
+        List<Object>        folded = new ArrayList<>(operands.size());
+        Map<String, Merged> merged = new LinkedHashMap<>();
+        for (Conditional operand : operands) {
+            Conditional f = fold(operand);
+            if (f.type == Conditional.Type.TRUE)
+                return Conditional.TRUE;
+            if (f.type == Conditional.Type.FALSE)
+                continue;
+
+            if (!isMergeable(f)) {
+                folded.add(f);
+                continue;
+            }
+
+            Merged m = merged.get(f.operation.attribute);
+            if (m == null) {
+                m = new Merged(f.operation.attribute);
+                merged.put(m.attribute, m);
+                folded.add(m);
+            }
+
+            m.add(f);
+        }
+
+        List<Conditional> result = new ArrayList<>(folded.size());
+        for (Object f : folded)
+            result.add(f instanceof Merged ? ((Merged) f).toConditional() : (Conditional) f);
+
+        return chain(Conditional.Type.OR, result, Conditional.FALSE);
+    }
+
+    private static boolean isMergeable(Conditional conditional)
+    {
+        if (conditional.type != Conditional.Type.OP)
+            return false;
+
+        Operation.Type type = conditional.operation.type;
+        if (type == Operation.Type.EQ)
+            return conditional.operation.arguments.length > 0;
+
+        return type == Operation.Type.IN &&
+               conditional.operation.arguments.length > 0 &&
+               conditional.operation.arguments[0] instanceof Collection;
+    }
+
+    /**
+     * Collects the operands of the chain of conditionals of the provided type.
+     *
+     * @param type        The type of the chain.
+     * @param conditional The conditional to collect the operands of.
+     * @param operands    The list the operands are added to.
+     */
+    private static void collect(Conditional.Type type, Conditional conditional, List<Conditional> operands)
+    {
+        if (conditional.type != type) {
+            operands.add(conditional);
+            return;
+        }
+
+        collect(type, conditional.left, operands);
+        collect(type, conditional.right, operands);
+    }
+
+    /**
+     * The values of the {@code eq} and {@code in} operations on a single attribute, merged into one {@code in}
+     * operation.
+     */
+    private static class Merged
+    {
+
+        private final String            attribute;
+        private final Set<Object>       values   = new LinkedHashSet<>();
+        private final List<Conditional> operands = new ArrayList<>();
+
+        private Merged(String attribute)
+        {
+            this.attribute = attribute;
+        }
+
+        private void add(Conditional operand)
+        {
+            operands.add(operand);
+            if (operand.operation.type == Operation.Type.EQ)
+                values.add(operand.operation.arguments[0]);
+            else
+                values.addAll((Collection<?>) operand.operation.arguments[0]);
+        }
+
+        private Conditional toConditional()
+        {
+            if (operands.size() == 1)
+                return operands.get(0);
+
+            if (values.size() == 1)
+                return Conditional.op(new Operation(attribute, Operation.Type.EQ, new Object[]{values.iterator().next()}));
+
+            return Conditional.op(new Operation(attribute, Operation.Type.IN, new Object[]{new ArrayList<>(values)}));
+        }
+    }
+
+    private static Conditional chain(Conditional.Type type, List<Conditional> operands, Conditional empty)
+    {
+        if (operands.isEmpty())
+            return empty;
+
+        Conditional result = operands.get(0);
+        for (int i = 1; i < operands.size(); i++)
+            result = new Conditional(type, result, operands.get(i), null);
+
+        return result;
+    }
+}
@@ -1,9 +1,14 @@
 package com.tvestergaard.start.data.repositories.base.queries;
 
 import com.tvestergaard.start.data.repositories.base.RepositoryEntity;
+import com.tvestergaard.start.data.repositories.base.queries.tree.Aggregate;
 import com.tvestergaard.start.data.repositories.base.queries.tree.Direction;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Represents a query on a repository.
@@ -16,6 +21,11 @@ import java.util.List;
 public interface RepositoryQuery<K extends Comparable<K>, E extends RepositoryEntity<K>>
 {
 
+    /**
+     * The number of results fetched at a time by {@link RepositoryQuery#stream()}.
+     */
+    int DEFAULT_FETCH_SIZE = 100;
+
     /**
      * Adds an {@code equals} constraint to the query. The value of the provided {@code attribute} must be equal to the
      * provided {@code value}.
@@ -209,6 +219,17 @@ public interface RepositoryQuery<K extends Comparable<K>, E extends RepositoryEn
      */
     RepositoryQuery<K, E> limit(int n);
 
+    /**
+     * Positions the query after the provided {@code cursor}, so only the results following the cursor are returned.
+     * The results are ordered by the declared order clauses, followed by the key of the entities, which makes the
+     * order of the results total. The attributes the query is ordered by must not contain {@code null} values.
+     *
+     * @param cursor The cursor to position the query after.
+     * @return this
+     * @see RepositoryQuery#getPageAfter(int, Cursor) For retrieving the results following a cursor one page at a time.
+     */
+    RepositoryQuery<K, E> after(Cursor cursor);
+
     /**
      * Executes the query, returning all results.
      *
@@ -216,6 +237,91 @@ public interface RepositoryQuery<K extends Comparable<K>, E extends RepositoryEn
      */
     List<E> get();
 
+    /**
+     * Executes the query returning the result of a single page, together with the total number of results in the
+     * query.
+     *
+     * @param pageSize   The number of results on a single page. Where {@code pageSize >= 1}.
+     * @param pageNumber The page to return the results from. Where {@code pageNumber >= 1}.
+     * @return The results in the page, and the total number of results.
+     * @see RepositoryQuery#getPageWithTotal(int, int, boolean)
+     */
+    default Page<E> getPageWithTotal(int pageSize, int pageNumber)
+    {
+        return getPageWithTotal(pageSize, pageNumber, false);
+    }
+
+    /**
+     * Executes the query returning the result of a single page, together with the total number of results in the
+     * query. The total is the number of results returned by {@link RepositoryQuery#count()}. Implementations may omit
+     * counting the results when the total can be derived from the page.
+     *
+     * @param pageSize   The number of results on a single page. Where {@code pageSize >= 1}.
+     * @param pageNumber The page to return the results from. Where {@code pageNumber >= 1}.
+     * @param concurrent Whether or not the results may be counted concurrently with retrieving the page.
+     * @return The results in the page, and the total number of results.
+     */
+    default Page<E> getPageWithTotal(int pageSize, int pageNumber, boolean concurrent)
+    {
+        pageSize = Math.max(pageSize, 1);
+        pageNumber = Math.max(pageNumber, 1);
+
+        return new Page<>(getPage(pageSize, pageNumber), count(), pageSize, pageNumber);
+    }
+
+    /**
+     * Executes the query returning the page of results following the provided {@code cursor}. Unlike
+     * {@link RepositoryQuery#getPage(int, int)}, the preceding results are not scanned, so the cost of retrieving a
+     * page does not depend on its position. The declared {@code skip} is not applied.
+     *
+     * @param pageSize The number of results on a single page. Where {@code pageSize >= 1}.
+     * @param cursor   The cursor to return the following results of. Either {@code null} or {@link Cursor#first()}
+     *                 to return the first page.
+     * @return The results in the page, and the cursor positioned after the page.
+     * @see RepositoryQuery#after(Cursor)
+     */
+    CursorPage<E> getPageAfter(int pageSize, Cursor cursor);
+
+    /**
+     * Executes the query, returning the results as a stream. The results are retrieved from the underlying data
+     * source while the stream is consumed, {@code fetchSize} results at a time, so the results are never held in
+     * memory at once. Processed results are released by the query, meaning modifications made to them are not
+     * persisted.
+     * <p>
+     * The stream holds resources of the underlying data source, and must be closed after use.
+     *
+     * @param fetchSize The number of results to fetch from the underlying data source at a time.
+     * @return The stream of the results in the query.
+     */
+    Stream<E> stream(int fetchSize);
+
+    /**
+     * Executes the query, returning the results as a stream. The results are fetched
+     * {@link RepositoryQuery#DEFAULT_FETCH_SIZE} at a time.
+     * <p>
+     * The stream holds resources of the underlying data source, and must be closed after use.
+     *
+     * @return The stream of the results in the query.
+     * @see RepositoryQuery#stream(int)
+     */
+    default Stream<E> stream()
+    {
+        return stream(DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Executes the query, providing each result to the provided {@code action}. The results are streamed from the
+     * underlying data source, see {@link RepositoryQuery#stream(int)}.
+     *
+     * @param action The action to perform on each result.
+     */
+    default void forEach(Consumer<? super E> action)
+    {
+        try (Stream<E> stream = stream()) {
+            stream.forEach(action);
+        }
+    }
+
     /**
      * Executes the query returning the result of a single page. The operation does not throw an exception when the
      * results are out of bounds. An empty list is instead returned.
@@ -244,6 +350,51 @@ public interface RepositoryQuery<K extends Comparable<K>, E extends RepositoryEn
      */
     E getAt(int n);
 
+    /**
+     * Executes the query asynchronously, returning all results. Implementations backed by a remote data source execute
+     * the query on a separate thread, other implementations may execute the query before returning.
+     * <p>
+     * Changes made to the query after this method returns do not affect the result.
+     *
+     * @return The future completed with all the results in the query.
+     * @see RepositoryQuery#get()
+     */
+    default CompletableFuture<List<E>> getAsync()
+    {
+        return CompletableFuture.completedFuture(get());
+    }
+
+    /**
+     * Counts the number of results asynchronously. Implementations backed by a remote data source execute the query
+     * on a separate thread, other implementations may execute the query before returning.
+     * <p>
+     * Changes made to the query after this method returns do not affect the result.
+     *
+     * @return The future completed with the number of results.
+     * @see RepositoryQuery#count()
+     */
+    default CompletableFuture<Long> countAsync()
+    {
+        return CompletableFuture.completedFuture(count());
+    }
+
+    /**
+     * Executes the query asynchronously, returning the result of a single page. Implementations backed by a remote
+     * data source execute the query on a separate thread, other implementations may execute the query before
+     * returning.
+     * <p>
+     * Changes made to the query after this method returns do not affect the result.
+     *
+     * @param pageSize   The number of results on a single page. Where {@code pageSize >= 1}.
+     * @param pageNumber The page to return the results from. Where {@code pageNumber >= 1}.
+     * @return The future completed with the results in the page.
+     * @see RepositoryQuery#getPage(int, int)
+     */
+    default CompletableFuture<List<E>> getPageAsync(int pageSize, int pageNumber)
+    {
+        return CompletableFuture.completedFuture(getPage(pageSize, pageNumber));
+    }
+
     /**
      * Returns the first result of the query.
      *
@@ -298,6 +449,64 @@ public interface RepositoryQuery<K extends Comparable<K>, E extends RepositoryEn
      */
     <V> V min(String attribute, Class<V> vClass);
 
+    /**
+     * Returns the sum of the values of the provided attribute. The declared {@code limit} does not effect the result
+     * of this method.
+     *
+     * @param attribute The attribute to return the sum of.
+     * @param vClass    The class of the return type. Integral attributes are summed as {@link Long}, floating point
+     *                  attributes as {@link Double}.
+     * @param <V>       The type of the return type.
+     * @return The sum of the values of the provided attribute, {@code null} when no result exists.
+     */
+    <V> V sum(String attribute, Class<V> vClass);
+
+    /**
+     * Returns the average of the values of the provided attribute. The declared {@code limit} does not effect the
+     * result of this method.
+     *
+     * @param attribute The attribute to return the average of.
+     * @return The average of the values of the provided attribute, {@code null} when no result exists.
+     */
+    Double avg(String attribute);
+
+    /**
+     * Counts the number of distinct values of the provided attribute. The declared {@code limit} does not effect the
+     * result of this method.
+     *
+     * @param attribute The attribute to count the distinct values of.
+     * @return The number of distinct values of the provided attribute.
+     */
+    long countDistinct(String attribute);
+
+    /**
+     * Groups the results by the provided attribute, returning the number of results in each group. The declared
+     * {@code limit} does not effect the result of this method.
+     *
+     * @param attribute The attribute to group the results by.
+     * @param gClass    The class of the grouped attribute.
+     * @param <G>       The type of the grouped attribute.
+     * @return The number of results in each group, mapped to the value of the grouped attribute. The groups are
+     * ordered by the value of the grouped attribute.
+     */
+    <G> Map<G, Long> groupBy(String attribute, Class<G> gClass);
+
+    /**
+     * Groups the results by the provided attribute, returning the provided aggregate of the {@code aggregated}
+     * attribute in each group. The declared {@code limit} does not effect the result of this method.
+     *
+     * @param attribute  The attribute to group the results by.
+     * @param gClass     The class of the grouped attribute.
+     * @param aggregate  The aggregate function to apply to each group.
+     * @param aggregated The attribute to apply the aggregate function to.
+     * @param vClass     The class of the aggregated values.
+     * @param <G>        The type of the grouped attribute.
+     * @param <V>        The type of the aggregated values.
+     * @return The aggregated values mapped to the value of the grouped attribute. The groups are ordered by the value
+     * of the grouped attribute.
+     */
+    <G, V> Map<G, V> groupBy(String attribute, Class<G> gClass, Aggregate aggregate, String aggregated, Class<V> vClass);
+
     /**
      * Returns the values of the provided attribute in the list of results.
      *
@@ -308,6 +517,28 @@ public interface RepositoryQuery<K extends Comparable<K>, E extends RepositoryEn
      */
     <V> List<V> getAttributes(String attribute, Class<V> vClass);
 
+    /**
+     * Returns the values of the provided attributes in the list of results. Only the provided attributes are
+     * retrieved from the underlying data source, and no entities are created.
+     *
+     * @param attributes The names of the attributes to return the values of.
+     * @return The rows containing the values of the provided attributes in the list of results.
+     */
+    List<Row> project(String... attributes);
+
+    /**
+     * Returns the values of the provided attributes in the list of results, each result mapped to an instance of the
+     * provided class. The class must declare a public constructor accepting the values of the provided attributes in
+     * the order they are provided. Only the provided attributes are retrieved from the underlying data source, and no
+     * entities are created.
+     *
+     * @param vClass     The class the results are mapped to.
+     * @param attributes The names of the attributes to return the values of.
+     * @param <V>        The type the results are mapped to.
+     * @return The mapped results.
+     */
+    <V> List<V> project(Class<V> vClass, String... attributes);
+
     /**
      * Returns the keys of the list of results.
      *
@@ -316,7 +547,9 @@ public interface RepositoryQuery<K extends Comparable<K>, E extends RepositoryEn
     List<K> getKeys();
 
     /**
-     * Chunks the results in the query, providing each chunk to the provided callback.
+     * Chunks the results in the query, providing each chunk to the provided callback. The results are walked in the
+     * order used by {@link RepositoryQuery#getPageAfter(int, Cursor)}, positioned after the cursor provided to
+     * {@link RepositoryQuery#after(Cursor)}. The declared {@code skip} is applied once, before the first chunk.
      *
      * @param chunkSize The number of results in each chunk.
      * @param chunker   The The handler that the chunks are provided to.
@@ -325,6 +558,25 @@ public interface RepositoryQuery<K extends Comparable<K>, E extends RepositoryEn
      */
     boolean chunk(int chunkSize, Chunker<E> chunker);
 
+    /**
+     * Deletes all the entities matching the where conditionals of the query, using bulk statements where the
+     * underlying data source supports it. When a limit or a number of results to skip is set, only the entities in
+     * that range of the ordered results are deleted.
+     *
+     * @return The number of deleted entities.
+     */
+    int delete();
+
+    /**
+     * Updates all the entities matching the where conditionals of the query, assigning the provided values to the
+     * provided attributes, using bulk statements where the underlying data source supports it. When a limit or a
+     * number of results to skip is set, only the entities in that range of the ordered results are updated.
+     *
+     * @param assignments The new values mapped to the attributes to assign them to.
+     * @return The number of updated entities.
+     */
+    int update(Map<String, Object> assignments);
+
     @FunctionalInterface
     interface Chunker<E>
     {
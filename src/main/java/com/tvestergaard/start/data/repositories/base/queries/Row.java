@@ -0,0 +1,106 @@
+package com.tvestergaard.start.data.repositories.base.queries;
+
+import java.util.Arrays;
+
+/**
+ * A single result of a projection, containing the values of the projected attributes.
+ *
+ * @see RepositoryQuery#project(String...)
+ */
+public class Row
+{
+
+    /**
+     * The names of the projected attributes.
+     */
+    private final String[] attributes;
+
+    /**
+     * The values of the projected attributes, in the order of the attributes.
+     */
+    private final Object[] values;
+
+    /**
+     * Creates a new {@link Row}.
+     *
+     * @param attributes The names of the projected attributes.
+     * @param values     The values of the projected attributes, in the order of the attributes.
+     */
+    public Row(String[] attributes, Object[] values)
+    {
+        this.attributes = attributes;
+        this.values = values;
+    }
+
+    /**
+     * Returns the value at the provided index.
+     *
+     * @param index The index of the value to return.
+     * @return The value at the provided index.
+     * @throws IndexOutOfBoundsException When no value exists at the provided index.
+     */
+    public Object get(int index)
+    {
+        if (index < 0 || index >= values.length)
+            throw new IndexOutOfBoundsException("No value at index " + index);
+
+        return values[index];
+    }
+
+    /**
+     * Returns the value of the provided attribute.
+     *
+     * @param attribute The name of the attribute to return the value of.
+     * @return The value of the provided attribute.
+     * @throws IllegalArgumentException When the provided attribute was not projected.
+     */
+    public Object get(String attribute)
+    {
+        for (int i = 0; i < attributes.length; i++)
+            if (attributes[i].equals(attribute))
+                return values[i];
+
+        throw new IllegalArgumentException("Attribute " + attribute + " was not projected.");
+    }
+
+    /**
+     * Returns the value of the provided attribute.
+     *
+     * @param attribute The name of the attribute to return the value of.
+     * @param vClass    The class of the return type.
+     * @param <V>       The type of the return type.
+     * @return The value of the provided attribute.
+     * @throws IllegalArgumentException When the provided attribute was not projected.
+     * @throws ClassCastException       When the value is not of the provided type.
+     */
+    public <V> V get(String attribute, Class<V> vClass)
+    {
+        return vClass.cast(get(attribute));
+    }
+
+    /**
+     * Returns the number of values in the row.
+     *
+     * @return The number of values in the row.
+     */
+    public int size()
+    {
+        return values.length;
+    }
+
+    /**
+     * Returns the values in the row, in the order the attributes were projected.
+     *
+     * @return The values in the row.
+     */
+    public Object[] toArray()
+    {
+        return Arrays.copyOf(values, values.length);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Row" + Arrays.toString(values);
+    }
+}
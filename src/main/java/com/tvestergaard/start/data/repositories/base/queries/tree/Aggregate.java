@@ -0,0 +1,39 @@
+package com.tvestergaard.start.data.repositories.base.queries.tree;
+
+/**
+ * The aggregate functions that can be applied to the values of an attribute, like the aggregated attribute of
+ * {@link com.tvestergaard.start.data.repositories.base.queries.RepositoryQuery#groupBy(String, Class, Aggregate, String, Class)}.
+ */
+public enum Aggregate
+{
+
+    /**
+     * The number of values.
+     */
+    COUNT,
+
+    /**
+     * The number of distinct values.
+     */
+    COUNT_DISTINCT,
+
+    /**
+     * The sum of the values.
+     */
+    SUM,
+
+    /**
+     * The average of the values.
+     */
+    AVG,
+
+    /**
+     * The smallest of the values.
+     */
+    MIN,
+
+    /**
+     * The largest of the values.
+     */
+    MAX
+}
@@ -2,6 +2,9 @@ package com.tvestergaard.start.data.repositories.base.queries.tree;
 
 public class Conditional
 {
+    public static final Conditional TRUE  = new Conditional(Type.TRUE, null, null, null);
+    public static final Conditional FALSE = new Conditional(Type.FALSE, null, null, null);
+
     public final Type        type;
     public final Conditional left;
     public final Conditional right;
@@ -34,6 +37,8 @@ public class Conditional
     {
         AND,
         OR,
-        OP
+        OP,
+        TRUE,
+        FALSE
     }
 }
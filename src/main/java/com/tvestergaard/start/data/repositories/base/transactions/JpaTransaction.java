@@ -1,8 +1,13 @@
 package com.tvestergaard.start.data.repositories.base.transactions;
 
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
+import java.util.ArrayList;
+import java.util.List;
 
 public class JpaTransaction implements Transaction
 {
@@ -12,6 +17,16 @@ public class JpaTransaction implements Transaction
      */
     private EntityManager entityManager;
 
+    /**
+     * The actions to perform when the transaction is committed or rolled back.
+     */
+    private final List<Runnable> completionActions = new ArrayList<>();
+
+    /**
+     * Whether or not the transaction is only used to read entities.
+     */
+    private boolean readOnly;
+
     /**
      * Creates a new {@link JpaTransaction} that represents the provided entity manager.
      *
@@ -39,8 +54,11 @@ public class JpaTransaction implements Transaction
     public void begin()
     {
         EntityTransaction entityTransaction = this.entityManager.getTransaction();
-        if (!entityTransaction.isActive())
+        if (!entityTransaction.isActive()) {
             entityTransaction.begin();
+            if (readOnly)
+                setReadOnlyConnection(entityManager);
+        }
     }
 
     /**
@@ -50,8 +68,12 @@ public class JpaTransaction implements Transaction
     public void commit()
     {
         EntityTransaction entityTransaction = this.entityManager.getTransaction();
-        if (entityTransaction.isActive())
-            entityTransaction.commit();
+        try {
+            if (entityTransaction.isActive())
+                entityTransaction.commit();
+        } finally {
+            complete();
+        }
     }
 
     /**
@@ -61,8 +83,12 @@ public class JpaTransaction implements Transaction
     public void rollback()
     {
         EntityTransaction entityTransaction = this.entityManager.getTransaction();
-        if (entityTransaction.isActive())
-            entityTransaction.rollback();
+        try {
+            if (entityTransaction.isActive())
+                entityTransaction.rollback();
+        } finally {
+            complete();
+        }
     }
 
     /**
@@ -73,12 +99,83 @@ public class JpaTransaction implements Transaction
     public void close()
     {
         EntityTransaction entityTransaction = this.entityManager.getTransaction();
-        if (entityTransaction.isActive())
-            entityTransaction.rollback();
+        try {
+            if (entityTransaction.isActive())
+                entityTransaction.rollback();
+        } finally {
+            complete();
+        }
 
         this.entityManager.close();
     }
 
+    /**
+     * Registers an action to perform every time the transaction is committed or rolled back, and when the transaction
+     * is closed.
+     *
+     * @param action The action to perform.
+     */
+    public void onCompletion(Runnable action)
+    {
+        completionActions.add(action);
+    }
+
+    /**
+     * Sets whether or not the transaction is only used to read entities. See
+     * {@link #setReadOnly(EntityManager, boolean)}. The connection used by a read-only transaction is marked read-only
+     * when the transaction begins.
+     *
+     * @param readOnly Whether or not the transaction is only used to read entities.
+     */
+    public void setReadOnly(boolean readOnly)
+    {
+        this.readOnly = readOnly;
+        setReadOnly(entityManager, readOnly);
+    }
+
+    /**
+     * Returns whether or not the transaction is only used to read entities.
+     *
+     * @return {@code true} when the transaction is only used to read entities.
+     */
+    public boolean isReadOnly()
+    {
+        return readOnly;
+    }
+
+    /**
+     * Sets whether or not the provided entity manager is only used to read entities. Hibernate loads the entities
+     * read by a read-only entity manager without keeping a snapshot of their state for dirty checking, and the
+     * entity manager is never flushed automatically, so changes to the entities are not written to the data source.
+     *
+     * @param entityManager The entity manager.
+     * @param readOnly      Whether or not the entity manager is only used to read entities.
+     */
+    public static void setReadOnly(EntityManager entityManager, boolean readOnly)
+    {
+        Session session = entityManager.unwrap(Session.class);
+        session.setDefaultReadOnly(readOnly);
+        session.setHibernateFlushMode(readOnly ? FlushMode.MANUAL : FlushMode.AUTO);
+    }
+
+    /**
+     * Marks the connection used by the active transaction of the provided entity manager read-only, allowing the
+     * database to skip the bookkeeping needed by transactions writing data. The connection pool restores the
+     * connection when the connection is returned.
+     *
+     * @param entityManager The entity manager with an active transaction.
+     */
+    public static void setReadOnlyConnection(EntityManager entityManager)
+    {
+        entityManager.unwrap(Session.class).doWork(connection -> connection.setReadOnly(true));
+    }
+
+    private void complete()
+    {
+        for (Runnable action : completionActions)
+            action.run();
+    }
+
     /**
      * Returns the current entity manager.
      *
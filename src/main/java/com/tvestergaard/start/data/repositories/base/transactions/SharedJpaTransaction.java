@@ -0,0 +1,59 @@
+package com.tvestergaard.start.data.repositories.base.transactions;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * A {@link JpaTransaction} shared by multiple participants, like the facades and repositories used while handling a
+ * single request. The participants begin, commit and roll back the transaction as usual, while closing the transaction
+ * has no effect, so the entity manager stays open for the following participants. The transaction is ended by its
+ * owner using {@link #end(boolean)}.
+ */
+public class SharedJpaTransaction extends JpaTransaction
+{
+
+    /**
+     * Creates a new {@link SharedJpaTransaction} that represents the provided entity manager.
+     *
+     * @param entityManager The entity manager the transaction should represent.
+     */
+    public SharedJpaTransaction(EntityManager entityManager)
+    {
+        super(entityManager);
+    }
+
+    /**
+     * Creates a new {@link SharedJpaTransaction} that represents the provided entity manager.
+     *
+     * @param factory The entity manager factory that created the entity manager the transaction should represent.
+     */
+    public SharedJpaTransaction(EntityManagerFactory factory)
+    {
+        super(factory);
+    }
+
+    /**
+     * Does nothing, since the transaction is ended by its owner using {@link #end(boolean)}.
+     */
+    @Override
+    public void close()
+    {
+
+    }
+
+    /**
+     * Ends the transaction, and closes the entity manager the transaction represents. Changes not committed by the
+     * participants are committed or rolled back.
+     *
+     * @param commit Whether to commit, or to roll back the changes not committed by the participants.
+     */
+    public void end(boolean commit)
+    {
+        try {
+            if (commit && getEntityManager().getTransaction().isActive())
+                commit();
+        } finally {
+            super.close();
+        }
+    }
+}
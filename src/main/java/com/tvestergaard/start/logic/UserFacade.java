@@ -2,9 +2,12 @@ package com.tvestergaard.start.logic;
 
 import com.tvestergaard.start.data.entities.User;
 import com.tvestergaard.start.data.repositories.UserRepository;
+import com.tvestergaard.start.data.repositories.base.cache.BloomFilter;
 import com.tvestergaard.start.data.repositories.base.transactions.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
 import org.mindrot.jbcrypt.BCrypt;
 
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -21,6 +24,12 @@ public class UserFacade<T extends Transaction>
      */
     private final Function<T, UserRepository> userRepositoryFactory;
 
+    /**
+     * The emails of the registered users, holding {@code null} when the emails have not been loaded. The emails are
+     * shared with the facades created using {@link #with(Supplier, Function)}.
+     */
+    private final AtomicReference<BloomFilter<String>> registeredEmails;
+
     /**
      * Creates a new {@link UserFacade}.
      *
@@ -28,9 +37,33 @@ public class UserFacade<T extends Transaction>
      * @param userRepositoryFactory The factory that produces user repositories used by this facade.
      */
     public UserFacade(Supplier<T> transactionFactory, Function<T, UserRepository> userRepositoryFactory)
+    {
+        this(transactionFactory, userRepositoryFactory, new AtomicReference<>());
+    }
+
+    private UserFacade(Supplier<T> transactionFactory,
+                       Function<T, UserRepository> userRepositoryFactory,
+                       AtomicReference<BloomFilter<String>> registeredEmails)
     {
         this.transactionFactory = transactionFactory;
         this.userRepositoryFactory = userRepositoryFactory;
+        this.registeredEmails = registeredEmails;
+    }
+
+    /**
+     * Returns a facade using the provided factories, that shares the emails of the registered users loaded using
+     * {@link #loadRegisteredEmails(double)} with this facade. Used to create facades performing their operations
+     * within the transaction of a single request.
+     *
+     * @param transactionFactory    The factory that produces transactions used by the returned facade.
+     * @param userRepositoryFactory The factory that produces user repositories used by the returned facade.
+     * @param <U>                   The type of the transactions used by the returned facade.
+     * @return The new facade.
+     */
+    public <U extends Transaction> UserFacade<U> with(Supplier<U> transactionFactory,
+                                                      Function<U, UserRepository> userRepositoryFactory)
+    {
+        return new UserFacade<>(transactionFactory, userRepositoryFactory, registeredEmails);
     }
 
     /**
@@ -63,20 +96,79 @@ public class UserFacade<T extends Transaction>
      */
     public User createUser(String name, String email, String password) throws ResourceConflictException
     {
+        BloomFilter<String> registeredEmails = this.registeredEmails.get();
+
         try (T transaction = transactionFactory.get()) {
 
             transaction.begin();
             UserRepository ur = userRepositoryFactory.apply(transaction);
 
-            if (ur.getByEmail(email) != null)
-                throw new ResourceConflictException(User.class, "A user with the provided email address already exists.");
+            if (registeredEmails == null || registeredEmails.mightContain(email))
+                if (ur.getByEmail(email) != null)
+                    throw emailConflict();
+
+            User user;
+            try {
+                user = ur.createUser(name, email, hash(password));
+                transaction.commit();
+            } catch (RuntimeException e) {
+                if (!isEmailConflict(e))
+                    throw e;
+
+                if (registeredEmails != null)
+                    registeredEmails.put(email);
+                throw emailConflict();
+            }
+
+            if (registeredEmails != null)
+                registeredEmails.put(email);
 
-            User user = ur.createUser(name, email, hash(password));
-            transaction.commit();
             return user;
         }
     }
 
+    /**
+     * Loads the emails of the registered users, so {@link #createUser(String, String, String)} can skip looking up
+     * emails that definitely do not belong to any user. The emails are kept in a Bloom filter, so the lookup is still
+     * performed for a small fraction of new emails. Users created while the emails are loaded may be missing from the
+     * filter, in which case the unique constraint on the email is the final guard.
+     *
+     * @param falsePositiveRate The acceptable fraction of new emails that are still looked up.
+     */
+    public void loadRegisteredEmails(double falsePositiveRate)
+    {
+        try (T transaction = transactionFactory.get()) {
+            UserRepository      ur     = userRepositoryFactory.apply(transaction);
+            BloomFilter<String> filter = BloomFilter.ofStrings(Math.max(ur.count() * 2, 1000), falsePositiveRate);
+            ur.forEachEmail(filter::put);
+            this.registeredEmails.set(filter);
+        }
+    }
+
+    /**
+     * Checks whether the provided exception was caused by the violation of the unique constraint on the email of
+     * users.
+     *
+     * @param e The exception to check.
+     * @return {@code true} when the exception was caused by the violation of {@link User#EMAIL_CONSTRAINT}.
+     */
+    private static boolean isEmailConflict(Throwable e)
+    {
+        for (Throwable cause = e; cause != null; cause = cause.getCause())
+            if (cause instanceof ConstraintViolationException) {
+                // Some databases qualify the name of the constraint with the name of the table.
+                String constraint = ((ConstraintViolationException) cause).getConstraintName();
+                return constraint != null && constraint.toLowerCase().matches("(.+\\.)?" + User.EMAIL_CONSTRAINT);
+            }
+
+        return false;
+    }
+
+    private static ResourceConflictException emailConflict()
+    {
+        return new ResourceConflictException(User.class, "A user with the provided email address already exists.");
+    }
+
     /**
      * Hashes the provided password using the bcrypt algorithm.
      *
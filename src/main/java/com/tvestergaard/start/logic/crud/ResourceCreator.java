@@ -8,7 +8,6 @@ import com.tvestergaard.start.logic.crud.validation.ResourceValidator;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 /**
  * Inserts resources into some repository.
@@ -79,7 +78,8 @@ public class ResourceCreator<K extends Comparable<K>, R extends RepositoryEntity
     /**
      * Validates and persists resources created from the provided resource data.
      * <p>
-     * When the validation or insertion of a single resource fails, all other insertions also fail.
+     * When the validation or insertion of a single resource fails, all other insertions also fail. The resources are
+     * inserted in batches using {@link CrudRepository#persistAll(List)}.
      *
      * @param all The data from which the resources is created.
      * @return The persisted resources.
@@ -102,7 +102,7 @@ public class ResourceCreator<K extends Comparable<K>, R extends RepositoryEntity
 
         try (CrudRepository<K, R> repository = repositoryFactory.get()) {
             repository.begin();
-            resources = resources.stream().map(repository::persist).collect(Collectors.toList());
+            resources = repository.persistAll(resources);
             repository.commit();
         }
 
@@ -47,7 +47,7 @@ public class ResourceRetriever<K extends Comparable<K>, R extends RepositoryEnti
      */
     public List<R> getAll()
     {
-        try (ReadRepository<K, R> repository = repositoryFactory.get()) {
+        try (ReadRepository<K, R> repository = createRepository()) {
             return repository.getAll();
         }
     }
@@ -59,7 +59,7 @@ public class ResourceRetriever<K extends Comparable<K>, R extends RepositoryEnti
      */
     public long count()
     {
-        try (ReadRepository<K, R> repository = repositoryFactory.get()) {
+        try (ReadRepository<K, R> repository = createRepository()) {
             return repository.count();
         }
     }
@@ -73,7 +73,7 @@ public class ResourceRetriever<K extends Comparable<K>, R extends RepositoryEnti
      */
     public R get(K id) throws ResourceNotFoundException
     {
-        try (ReadRepository<K, R> repository = repositoryFactory.get()) {
+        try (ReadRepository<K, R> repository = createRepository()) {
             R resource = repository.get(id);
             if (resource == null)
                 throw new ResourceNotFoundException(kClass, id);
@@ -91,7 +91,7 @@ public class ResourceRetriever<K extends Comparable<K>, R extends RepositoryEnti
      */
     public Map<K, R> get(Set<K> ids)
     {
-        try (ReadRepository<K, R> repository = repositoryFactory.get()) {
+        try (ReadRepository<K, R> repository = createRepository()) {
             return repository.get(ids);
         }
     }
@@ -104,7 +104,7 @@ public class ResourceRetriever<K extends Comparable<K>, R extends RepositoryEnti
      */
     public boolean exists(K id)
     {
-        try (ReadRepository<K, R> repository = repositoryFactory.get()) {
+        try (ReadRepository<K, R> repository = createRepository()) {
             return repository.exists(id);
         }
     }
@@ -117,8 +117,21 @@ public class ResourceRetriever<K extends Comparable<K>, R extends RepositoryEnti
      */
     public boolean exists(Set<K> ids)
     {
-        try (ReadRepository<K, R> repository = repositoryFactory.get()) {
+        try (ReadRepository<K, R> repository = createRepository()) {
             return repository.exists(ids);
         }
     }
+
+    /**
+     * Creates a new repository from the repository factory. The retriever only reads resources, so the repository is
+     * read-only, and the retrieved resources are not checked for changes.
+     *
+     * @return The new repository.
+     */
+    private ReadRepository<K, R> createRepository()
+    {
+        ReadRepository<K, R> repository = repositoryFactory.get();
+        repository.setReadOnly(true);
+        return repository;
+    }
 }
@@ -10,6 +10,7 @@ import javax.persistence.Id;
 import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Supplier;
 
 /**
@@ -74,19 +75,22 @@ public class ResourceUpdater<K extends Comparable<K>, R extends RepositoryEntity
             ResourceValidationException
     {
         try (CrudRepository<K, R> repository = repositoryFactory.get()) {
+            // The resource is read within the transaction, so it is never read from a lagging replica.
+            repository.begin();
             R found = repository.get(key);
             if (found == null)
                 throw new ResourceNotFoundException(kClass, key == null ? "null" : key);
 
-            R sent   = data.toResource();
-            R merged = merge(sent, found);
+            R sent = data.toResource();
+            if (!merge(sent, found))
+                return found;
+
             if (validatorFactory != null) {
-                ResourceValidator<R> validator = validatorFactory.create(merged);
+                ResourceValidator<R> validator = validatorFactory.create(found);
                 validator.throwResourceValidationException();
             }
 
-            repository.begin();
-            R updated = repository.update(merged);
+            R updated = repository.update(found);
             repository.commit();
 
             return updated;
@@ -141,14 +145,18 @@ public class ResourceUpdater<K extends Comparable<K>, R extends RepositoryEntity
                 if (found == null)
                     throw new ResourceNotFoundException(kClass, key);
 
-                R sent   = entry.getValue().toResource();
-                R merged = merge(sent, found);
+                R sent = entry.getValue().toResource();
+                if (!merge(sent, found)) {
+                    results.put(key, found);
+                    continue;
+                }
+
                 if (validatorFactory != null) {
-                    ResourceValidator<R> validator = validatorFactory.create(merged);
+                    ResourceValidator<R> validator = validatorFactory.create(found);
                     validator.throwResourceValidationException();
                 }
 
-                results.put(key, repository.update(merged));
+                results.put(key, repository.update(found));
             }
 
             repository.commit();
@@ -159,15 +167,17 @@ public class ResourceUpdater<K extends Comparable<K>, R extends RepositoryEntity
 
     /**
      * Transfers all non-null values in the provided {@code source} resource to the provided {@code destination}
-     * resource.
+     * resource. Only the values that differ from the values in the {@code destination} are transferred, so the
+     * resource is only updated when some value actually changed.
      *
      * @param source      The source resource.
      * @param destination The destination resource.
-     * @return The updated source resource.
+     * @return {@code true} when any value in the {@code destination} was changed, {@code false} otherwise.
      */
-    private R merge(R source, R destination)
+    private boolean merge(R source, R destination)
     {
         try {
+            boolean changed = false;
             for (Field field : destination.getClass().getDeclaredFields()) {
 
                 if (field.getAnnotation(Id.class) != null)
@@ -177,13 +187,15 @@ public class ResourceUpdater<K extends Comparable<K>, R extends RepositoryEntity
                 field.setAccessible(true);
 
                 Object value = field.get(source);
-                if (value != null)
+                if (value != null && !Objects.equals(value, field.get(destination))) {
                     field.set(destination, value);
+                    changed = true;
+                }
 
                 field.setAccessible(accessible);
             }
 
-            return destination;
+            return changed;
 
         } catch (IllegalAccessException e) {
             throw new RuntimeException(e);
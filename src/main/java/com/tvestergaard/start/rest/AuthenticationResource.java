@@ -1,13 +1,13 @@
 package com.tvestergaard.start.rest;
 
 import com.google.gson.Gson;
-import com.tvestergaard.start.data.repositories.JpaUserRepository;
 import com.tvestergaard.start.logic.AuthenticationFacade;
 import com.tvestergaard.start.logic.SpecializedGson;
 import com.tvestergaard.start.logic.authentication.AuthenticationContext;
 import com.tvestergaard.start.logic.authentication.jwt.BasicJwtSecret;
 import com.tvestergaard.start.rest.dto.AuthenticationDTO;
 
+import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -19,12 +19,22 @@ import javax.ws.rs.core.Response;
 public class AuthenticationResource
 {
 
-    private static Gson                 gson                 = SpecializedGson.create();
-    private static byte[]               secret               = new byte[]{1, 2, 3, 4,};
-    private static AuthenticationFacade authenticationFacade = new AuthenticationFacade(
-            new BasicJwtSecret(secret),
-            () -> new JpaUserRepository(JpaConnection.create())
-    );
+    private static Gson   gson   = SpecializedGson.create();
+    private static byte[] secret = new byte[]{1, 2, 3, 4,};
+
+    /**
+     * The facade performing its operations within the unit of work of the request.
+     */
+    private final AuthenticationFacade authenticationFacade;
+
+    @Inject
+    public AuthenticationResource(UnitOfWork unitOfWork)
+    {
+        this.authenticationFacade = new AuthenticationFacade(
+                new BasicJwtSecret(secret),
+                () -> JpaRepositories.users(unitOfWork)
+        );
+    }
 
 
     @POST
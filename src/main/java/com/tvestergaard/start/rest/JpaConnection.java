@@ -1,21 +1,108 @@
 package com.tvestergaard.start.rest;
 
+import com.tvestergaard.start.data.repositories.base.ReplicaRouter;
+
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 public class JpaConnection
 {
-    private static EntityManagerFactory emf;
+    /**
+     * The prefix of the options in connection.cfg overriding the options of the primary data source for the replica.
+     */
+    private static final String REPLICA_PREFIX = "replica.";
+
+    /**
+     * The option in connection.cfg containing the number of seconds after a write, during which the written entities
+     * are read from the primary data source.
+     */
+    private static final String REPLICA_WINDOW = "replica.window";
+
+    /**
+     * The option in connection.cfg enabling the connection pool metrics, which are disabled by default, since they
+     * expose the internals of the connection pool to anonymous clients.
+     */
+    private static final String METRICS_ENABLED = "metrics.enabled";
+
+    private static volatile EntityManagerFactory emf;
 
+    private static volatile ReplicaRouter replicaRouter;
+
+    private static volatile boolean replicaCreated;
+
+    /**
+     * Returns the entity manager factory shared by the application. The entity manager factory is created once, by the
+     * first caller, while concurrent callers wait for it to be created. The factory is normally created at startup by
+     * {@link JpaLifecycleListener}, so requests never pay the bootstrap cost.
+     *
+     * @return The shared entity manager factory.
+     */
     public static EntityManagerFactory create()
     {
-        if (emf == null)
-            emf = createConnection();
-        return emf;
+        EntityManagerFactory result = emf;
+        if (result == null) {
+            synchronized (JpaConnection.class) {
+                result = emf;
+                if (result == null)
+                    emf = result = createConnection();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the router routing read operations to the replica of the primary data source. The replica is configured
+     * using options prefixed with {@code replica.} in connection.cfg, that override the options of the primary data
+     * source, like {@code replica.hibernate.connection.url}.
+     *
+     * @return The shared replica router, {@code null} when no replica is configured.
+     */
+    public static ReplicaRouter replica()
+    {
+        if (!replicaCreated) {
+            synchronized (JpaConnection.class) {
+                if (!replicaCreated) {
+                    replicaRouter = createReplica();
+                    replicaCreated = true;
+                }
+            }
+        }
+
+        return replicaRouter;
+    }
+
+    /**
+     * Closes the shared entity manager factories, when they have been created.
+     */
+    public static synchronized void close()
+    {
+        if (emf != null) {
+            emf.close();
+            emf = null;
+        }
+
+        if (replicaRouter != null)
+            replicaRouter.close();
+
+        replicaRouter = null;
+        replicaCreated = false;
+    }
+
+    /**
+     * Returns whether or not the connection pool metrics are enabled, using {@code metrics.enabled=true} in
+     * connection.cfg.
+     *
+     * @return {@code true} when the connection pool metrics are enabled.
+     */
+    public static boolean isMetricsEnabled()
+    {
+        return "true".equals(loadOptions("/connection.cfg").get(METRICS_ENABLED));
     }
 
     public static void main(String[] args)
@@ -28,9 +115,34 @@ public class JpaConnection
         System.out.println("Loading connection.cfg.");
         Map<String, String> options = loadOptions("/connection.cfg");
         System.out.println(String.format("Found %d options.", options.size()));
+        options.keySet().removeIf(key -> key.startsWith(REPLICA_PREFIX));
+        options.remove(METRICS_ENABLED);
         return Persistence.createEntityManagerFactory("rest-api-pu", options);
     }
 
+    private static ReplicaRouter createReplica()
+    {
+        Map<String, String> options = loadOptions("/connection.cfg");
+        Map<String, String> replica = new HashMap<>();
+        String              window  = options.remove(REPLICA_WINDOW);
+        options.remove(METRICS_ENABLED);
+        for (Map.Entry<String, String> option : options.entrySet())
+            if (option.getKey().startsWith(REPLICA_PREFIX))
+                replica.put(option.getKey().substring(REPLICA_PREFIX.length()), option.getValue());
+
+        if (replica.isEmpty())
+            return null;
+
+        options.keySet().removeIf(key -> key.startsWith(REPLICA_PREFIX));
+        options.put("hibernate.hikari.poolName", "rest-start-replica");
+        options.put("hibernate.hikari.readOnly", "true");
+        options.putAll(replica);
+
+        return new ReplicaRouter(Persistence.createEntityManagerFactory("rest-api-pu", options),
+                                 window == null ? 5 : Long.parseLong(window),
+                                 TimeUnit.SECONDS);
+    }
+
     private static Map<String, String> loadOptions(String file)
     {
         HashMap<String, String> options     = new HashMap<>();
@@ -0,0 +1,71 @@
+package com.tvestergaard.start.rest;
+
+import com.tvestergaard.start.data.repositories.JpaUserRepository;
+import com.tvestergaard.start.data.repositories.base.queries.JpaRepositoryQuery;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.persistence.EntityManagerFactory;
+import javax.ws.rs.ext.Provider;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the shared entity manager factories when the application is initialized, and closes them when the application
+ * is destroyed, together with the executor of the asynchronous repository queries. The application is initialized when
+ * the servlet is loaded on startup, and does not receive requests before the initialization is finished.
+ * Initialization fails when the entity manager factories cannot be created or warmed up.
+ */
+@Provider
+public class JpaLifecycleListener implements ApplicationEventListener
+{
+
+    private static final Logger logger = Logger.getLogger(JpaLifecycleListener.class.getName());
+
+    @Override
+    public void onEvent(ApplicationEvent event)
+    {
+        switch (event.getType()) {
+            case INITIALIZATION_APP_FINISHED:
+                try {
+                    warmup(JpaConnection.create());
+                    JpaConnection.replica();
+                    UserResource.loadRegisteredEmails();
+                } catch (RuntimeException e) {
+                    // The application cannot serve requests without its data source, so initialization fails.
+                    logger.log(Level.SEVERE, "Could not warm up the entity manager factory.", e);
+                    throw e;
+                }
+                break;
+            case DESTROY_FINISHED:
+                JpaConnection.close();
+                JpaRepositoryQuery.shutdownAsyncExecutor();
+                break;
+        }
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent)
+    {
+        return null;
+    }
+
+    /**
+     * Executes the queries performed by the resources once, so the queries are compiled, and the connection pool is
+     * filled, before the first request is received. The queries do not modify the data source.
+     *
+     * @param entityManagerFactory The entity manager factory to warm up.
+     */
+    public static void warmup(EntityManagerFactory entityManagerFactory)
+    {
+        try (JpaUserRepository users = new JpaUserRepository(entityManagerFactory)) {
+            users.get(0);
+            users.getByEmail("");
+            users.count();
+            users.exists(0);
+            users.query().eq("email", "").limit(1).get();
+        }
+    }
+}
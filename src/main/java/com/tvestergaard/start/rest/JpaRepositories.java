@@ -0,0 +1,74 @@
+package com.tvestergaard.start.rest;
+
+import com.tvestergaard.start.data.entities.User;
+import com.tvestergaard.start.data.repositories.JpaUserRepository;
+import com.tvestergaard.start.data.repositories.UserEmailCache;
+import com.tvestergaard.start.data.repositories.base.cache.Cache;
+import com.tvestergaard.start.data.repositories.base.cache.LruCache;
+import com.tvestergaard.start.data.repositories.base.transactions.JpaTransaction;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the repositories used by the resources. The repositories are created per request, so the caches used by the
+ * repositories are shared here.
+ */
+public class JpaRepositories
+{
+
+    /**
+     * The cache of users mapped to their id, shared by all user repositories.
+     */
+    private static final Cache<Integer, User> userCache = new LruCache<>(10000, 600, TimeUnit.SECONDS);
+
+    /**
+     * The cache of user ids mapped to their email, shared by all user repositories.
+     */
+    private static final UserEmailCache userEmailCache = new UserEmailCache(10000, 600, 5, TimeUnit.SECONDS);
+
+    /**
+     * Creates a new user repository using the provided transaction.
+     *
+     * @param transaction The transaction the repository performs operations within.
+     * @return The new user repository.
+     */
+    public static JpaUserRepository users(JpaTransaction transaction)
+    {
+        return configure(new JpaUserRepository(transaction));
+    }
+
+    /**
+     * Creates a new user repository using the provided transaction of the provided {@link UnitOfWork}. The entity types
+     * written using the repository are read from the primary data source by the other repositories of the unit of
+     * work.
+     *
+     * @param transaction The transaction the repository performs operations within.
+     * @param unitOfWork  The unit of work the transaction belongs to.
+     * @return The new user repository.
+     */
+    public static JpaUserRepository users(JpaTransaction transaction, UnitOfWork unitOfWork)
+    {
+        JpaUserRepository repository = users(transaction);
+        repository.setReplicaToken(unitOfWork.getToken());
+        return repository;
+    }
+
+    /**
+     * Creates a new user repository using the transaction of the provided {@link UnitOfWork}.
+     *
+     * @param unitOfWork The unit of work of the request the repository is used within.
+     * @return The new user repository.
+     */
+    public static JpaUserRepository users(UnitOfWork unitOfWork)
+    {
+        return users(unitOfWork.transaction(), unitOfWork);
+    }
+
+    private static JpaUserRepository configure(JpaUserRepository repository)
+    {
+        repository.setCache(userCache);
+        repository.setEmailCache(userEmailCache);
+        repository.setReplicaRouter(JpaConnection.replica());
+        return repository;
+    }
+}
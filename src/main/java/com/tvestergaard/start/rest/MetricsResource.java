@@ -0,0 +1,44 @@
+package com.tvestergaard.start.rest;
+
+import com.google.gson.Gson;
+import com.tvestergaard.start.data.ConnectionPoolStatistics;
+import com.tvestergaard.start.logic.SpecializedGson;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+
+@Path("metrics")
+public class MetricsResource
+{
+
+    private static Gson gson = SpecializedGson.create();
+
+    /**
+     * Whether or not the metrics are enabled in connection.cfg.
+     */
+    private static boolean enabled = JpaConnection.isMetricsEnabled();
+
+    /**
+     * Returns the statistics of the connection pool. The statistics are only exposed when enabled using
+     * {@code metrics.enabled=true} in connection.cfg, since the endpoint is not authenticated.
+     */
+    @GET
+    @Produces(APPLICATION_JSON)
+    @Path("connections")
+    public Response getConnectionPoolStatistics()
+    {
+        if (!enabled)
+            return Response.status(NOT_FOUND).build();
+
+        ConnectionPoolStatistics statistics = ConnectionPoolStatistics.of(JpaConnection.create());
+        if (statistics == null)
+            return Response.status(NOT_FOUND).build();
+
+        return Response.ok(gson.toJson(statistics)).build();
+    }
+}
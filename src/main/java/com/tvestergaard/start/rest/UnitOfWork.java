@@ -0,0 +1,100 @@
+package com.tvestergaard.start.rest;
+
+import com.tvestergaard.start.data.repositories.base.transactions.JpaTransaction;
+import com.tvestergaard.start.data.repositories.base.transactions.SharedJpaTransaction;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * The unit of work of a single request. The unit of work lazily opens a single transaction, shared by all the facades
+ * and repositories used while handling the request, so a request uses a single entity manager, and a single
+ * connection. A unit of work is created for each request by {@link UnitOfWorkFactory}, and is committed by
+ * {@link UnitOfWorkFilter} before the response is sent.
+ */
+public class UnitOfWork
+{
+
+    /**
+     * The entity manager factory creating the entity manager of the transaction.
+     */
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Whether or not the transaction is only used to read entities.
+     */
+    private final boolean readOnly;
+
+    /**
+     * The transaction shared within the unit of work, {@code null} when the transaction has not been opened.
+     */
+    private SharedJpaTransaction transaction;
+
+    /**
+     * The token identifying the writes of the unit of work to the replica router.
+     */
+    private final Object token = new Object();
+
+    /**
+     * Creates a new {@link UnitOfWork}.
+     *
+     * @param entityManagerFactory The entity manager factory creating the entity manager of the transaction.
+     * @param readOnly             Whether or not the transaction is only used to read entities, like the transactions
+     *                             of requests using safe methods. See {@link JpaTransaction#setReadOnly(boolean)}.
+     */
+    public UnitOfWork(EntityManagerFactory entityManagerFactory, boolean readOnly)
+    {
+        this.entityManagerFactory = entityManagerFactory;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Creates a new {@link UnitOfWork} with a transaction reading and writing entities.
+     *
+     * @param entityManagerFactory The entity manager factory creating the entity manager of the transaction.
+     */
+    public UnitOfWork(EntityManagerFactory entityManagerFactory)
+    {
+        this(entityManagerFactory, false);
+    }
+
+    /**
+     * Returns the transaction of the unit of work, opening the transaction on first use.
+     *
+     * @return The transaction.
+     */
+    public JpaTransaction transaction()
+    {
+        if (transaction == null) {
+            transaction = new SharedJpaTransaction(entityManagerFactory);
+            if (readOnly)
+                transaction.setReadOnly(true);
+        }
+
+        return transaction;
+    }
+
+    /**
+     * Returns the token identifying the writes of the unit of work to the replica router, so entity types written by
+     * the request are read from the primary data source by the request, without affecting other requests.
+     *
+     * @return The token.
+     */
+    public Object getToken()
+    {
+        return token;
+    }
+
+    /**
+     * Ends the unit of work, closing its transaction when opened. Ending a unit of work that has already been ended has
+     * no effect.
+     *
+     * @param commit Whether to commit, or to roll back the changes not committed by the facades and repositories.
+     */
+    public void end(boolean commit)
+    {
+        SharedJpaTransaction transaction = this.transaction;
+        this.transaction = null;
+        if (transaction != null)
+            transaction.end(commit);
+    }
+}
@@ -0,0 +1,34 @@
+package com.tvestergaard.start.rest;
+
+import org.glassfish.jersey.internal.inject.DisposableSupplier;
+import org.glassfish.jersey.server.ContainerRequest;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.ws.rs.HttpMethod;
+
+/**
+ * Creates the {@link UnitOfWork} of each request. The factory is bound in the request scope by
+ * {@link UnitOfWorkFeature}, so a request has a single unit of work, which is rolled back and closed when the request
+ * scope ends, including requests failing before the response filters are reached. The unit of work of requests using
+ * safe methods, like {@code GET}, is read-only, so the entities read by the request are not checked for changes.
+ */
+public class UnitOfWorkFactory implements DisposableSupplier<UnitOfWork>
+{
+
+    @Inject
+    private Provider<ContainerRequest> request;
+
+    @Override
+    public UnitOfWork get()
+    {
+        String method = request.get().getMethod();
+        return new UnitOfWork(JpaConnection.create(), HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method));
+    }
+
+    @Override
+    public void dispose(UnitOfWork unitOfWork)
+    {
+        unitOfWork.end(false);
+    }
+}
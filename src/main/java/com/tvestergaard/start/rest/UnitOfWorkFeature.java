@@ -0,0 +1,32 @@
+package com.tvestergaard.start.rest;
+
+import org.glassfish.jersey.internal.inject.AbstractBinder;
+import org.glassfish.jersey.process.internal.RequestScoped;
+
+import javax.ws.rs.core.Feature;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Binds the {@link UnitOfWork} in the request scope, so resources and filters can inject the unit of work of the
+ * request they handle.
+ */
+@Provider
+public class UnitOfWorkFeature implements Feature
+{
+
+    @Override
+    public boolean configure(FeatureContext context)
+    {
+        context.register(new AbstractBinder()
+        {
+            @Override
+            protected void configure()
+            {
+                bindFactory(UnitOfWorkFactory.class).to(UnitOfWork.class).in(RequestScoped.class);
+            }
+        });
+
+        return true;
+    }
+}
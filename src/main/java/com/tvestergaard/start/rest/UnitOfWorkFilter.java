@@ -0,0 +1,56 @@
+package com.tvestergaard.start.rest;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+
+/**
+ * Ends the {@link UnitOfWork} of each request before the response is sent. Changes not committed by the facades are
+ * committed when the response is successful, and rolled back otherwise. Since the response has not been written yet,
+ * a failing commit replaces the response with the error response of the failure, so clients are never told that
+ * changes succeeded when they were not committed.
+ */
+@Provider
+public class UnitOfWorkFilter implements ContainerResponseFilter
+{
+
+    @Inject
+    private javax.inject.Provider<UnitOfWork> unitOfWork;
+
+    @Context
+    private Providers providers;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
+    {
+        Response.Status.Family family = responseContext.getStatusInfo().getFamily();
+        boolean commit = family == Response.Status.Family.SUCCESSFUL || family == Response.Status.Family.REDIRECTION;
+
+        try {
+            unitOfWork.get().end(commit);
+        } catch (RuntimeException e) {
+            if (!commit)
+                throw e;
+
+            Response response = toResponse(e);
+            responseContext.setStatus(response.getStatus());
+            responseContext.setEntity(response.getEntity());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Response toResponse(RuntimeException e)
+    {
+        ExceptionMapper<RuntimeException> mapper = providers.getExceptionMapper((Class<RuntimeException>) e.getClass());
+        if (mapper == null)
+            return Response.serverError().build();
+
+        return mapper.toResponse(e);
+    }
+}
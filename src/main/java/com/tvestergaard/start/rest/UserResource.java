@@ -2,7 +2,6 @@ package com.tvestergaard.start.rest;
 
 import com.google.gson.Gson;
 import com.tvestergaard.start.data.entities.User;
-import com.tvestergaard.start.data.repositories.JpaUserRepository;
 import com.tvestergaard.start.data.repositories.base.transactions.JpaTransaction;
 import com.tvestergaard.start.logic.ResourceConflictException;
 import com.tvestergaard.start.logic.ResourceNotFoundException;
@@ -10,6 +9,7 @@ import com.tvestergaard.start.logic.SpecializedGson;
 import com.tvestergaard.start.logic.UserFacade;
 import com.tvestergaard.start.rest.dto.UserDTO;
 
+import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Response;
 
@@ -23,9 +23,31 @@ public class UserResource
     private static Gson                       gson       = SpecializedGson.create();
     private static UserFacade<JpaTransaction> userFacade = new UserFacade<>(
             () -> new JpaTransaction(JpaConnection.create()),
-            JpaUserRepository::new
+            JpaRepositories::users
     );
 
+    /**
+     * The facade performing its operations within the unit of work of the request.
+     */
+    private final UserFacade<JpaTransaction> requestFacade;
+
+    @Inject
+    public UserResource(UnitOfWork unitOfWork)
+    {
+        this.requestFacade = userFacade.with(unitOfWork::transaction,
+                                             transaction -> JpaRepositories.users(transaction, unitOfWork));
+    }
+
+    /**
+     * Loads the emails of the registered users, so signups using new emails can skip looking up the email. Called by
+     * {@link JpaLifecycleListener} when the application is initialized. Until the emails are loaded, every signup
+     * looks up the email.
+     */
+    static void loadRegisteredEmails()
+    {
+        userFacade.loadRegisteredEmails(0.01);
+    }
+
     @POST
     @Produces(APPLICATION_JSON)
     @Consumes(APPLICATION_JSON)
@@ -33,9 +55,9 @@ public class UserResource
     {
         ReceivedCreateUser receivedUser = gson.fromJson(content, ReceivedCreateUser.class);
 
-        User createdUser = userFacade.createUser(receivedUser.name,
-                                                 receivedUser.email,
-                                                 receivedUser.password);
+        User createdUser = requestFacade.createUser(receivedUser.name,
+                                                    receivedUser.email,
+                                                    receivedUser.password);
 
         return Response.status(CREATED).entity(gson.toJson(UserDTO.complete(createdUser))).build();
     }
@@ -52,7 +74,7 @@ public class UserResource
     @Path("{id: [0-9]+}")
     public Response getUserById(@PathParam("id") int id) throws ResourceNotFoundException
     {
-        User   user    = userFacade.get(id);
+        User   user    = requestFacade.get(id);
         String jsonDTO = gson.toJson(UserDTO.complete(user));
         return Response.ok(jsonDTO).build();
     }
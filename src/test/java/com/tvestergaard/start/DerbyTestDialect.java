@@ -0,0 +1,33 @@
+package com.tvestergaard.start;
+
+import org.hibernate.dialect.DerbyTenSevenDialect;
+import org.hibernate.exception.spi.TemplatedViolatedConstraintNameExtracter;
+import org.hibernate.exception.spi.ViolatedConstraintNameExtracter;
+
+import java.sql.SQLException;
+
+/**
+ * The Derby dialect used by the tests, reporting the names of violated unique constraints like the MySQL dialect used
+ * in production does.
+ */
+public class DerbyTestDialect extends DerbyTenSevenDialect
+{
+
+    private static final ViolatedConstraintNameExtracter extracter = new TemplatedViolatedConstraintNameExtracter()
+    {
+        @Override
+        protected String doExtractConstraintName(SQLException e)
+        {
+            if (!"23505".equals(e.getSQLState()))
+                return null;
+
+            return extractUsingTemplate("identified by '", "'", e.getMessage());
+        }
+    };
+
+    @Override
+    public ViolatedConstraintNameExtracter getViolatedConstraintNameExtracter()
+    {
+        return extracter;
+    }
+}
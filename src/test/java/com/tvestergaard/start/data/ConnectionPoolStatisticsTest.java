@@ -0,0 +1,49 @@
+package com.tvestergaard.start.data;
+
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ConnectionPoolStatisticsTest
+{
+
+    @Test
+    void of()
+    {
+        HashMap<String, String> options = new HashMap<>();
+        options.put("hibernate.connection.url", "jdbc:derby:memory:unit-testing-pool;create=true");
+        options.put("hibernate.connection.provider_class",
+                    "org.hibernate.hikaricp.internal.HikariCPConnectionProvider");
+        options.put("hibernate.hikari.minimumIdle", "1");
+        options.put("hibernate.hikari.maximumPoolSize", "3");
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("rest-api-test-pu", options);
+
+        try {
+            EntityManager entityManager = emf.createEntityManager();
+            entityManager.getTransaction().begin();
+            entityManager.createQuery("SELECT COUNT(u) FROM User u").getSingleResult();
+
+            ConnectionPoolStatistics statistics = ConnectionPoolStatistics.of(emf);
+            assertNotNull(statistics);
+            assertEquals(1, statistics.getActive());
+            assertEquals(0, statistics.getWaiting());
+            assertEquals(3, statistics.getMaximum());
+            assertEquals(statistics.getTotal(), statistics.getActive() + statistics.getIdle());
+
+            entityManager.getTransaction().commit();
+            entityManager.close();
+
+            statistics = ConnectionPoolStatistics.of(emf);
+            assertEquals(0, statistics.getActive());
+            assertEquals(statistics.getTotal(), statistics.getIdle());
+        } finally {
+            emf.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.tvestergaard.start.data.repositories;
+
+import com.tvestergaard.start.JpaTestConnection;
+import com.tvestergaard.start.data.entities.User;
+import com.tvestergaard.start.data.repositories.base.cache.LruCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates user repositories sharing an entity cache and an email cache. The caches are shared between the
+ * repositories, so the repositories use a separate database where the data is committed.
+ */
+public class CachedUserRepositories
+{
+
+    private final JpaTestConnection       connection = new JpaTestConnection(emf -> {});
+    private final LruCache<Integer, User> cache      = new LruCache<>(100);
+    private final UserEmailCache          emailCache = new UserEmailCache(100, 0, 1, TimeUnit.MINUTES);
+
+    public JpaUserRepository create()
+    {
+        JpaUserRepository repository = new JpaUserRepository(connection.getEntityManagerFactory());
+        configure(repository);
+        return repository;
+    }
+
+    public void configure(JpaUserRepository repository)
+    {
+        repository.setCache(cache);
+        repository.setEmailCache(emailCache);
+    }
+
+    public Integer createUser(String name, String email)
+    {
+        try (JpaUserRepository repository = create()) {
+            repository.begin();
+            Integer id = repository.createUser(name, email, "password").getId();
+            repository.commit();
+            return id;
+        }
+    }
+
+    public JpaTestConnection getConnection()
+    {
+        return connection;
+    }
+
+    public LruCache<Integer, User> getCache()
+    {
+        return cache;
+    }
+
+    public UserEmailCache getEmailCache()
+    {
+        return emailCache;
+    }
+
+    public void close()
+    {
+        connection.close();
+    }
+}
@@ -0,0 +1,157 @@
+package com.tvestergaard.start.data.repositories;
+
+import com.tvestergaard.start.data.entities.User;
+import com.tvestergaard.start.data.repositories.base.transactions.JpaTransaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JpaUserRepositoryEmailCacheTest
+{
+
+    private CachedUserRepositories repositories;
+    private UserEmailCache         cache;
+    private Integer                id;
+
+    @BeforeEach
+    void setUp()
+    {
+        repositories = new CachedUserRepositories();
+        cache = repositories.getEmailCache();
+        id = repositories.createUser("email", "email@email.com");
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        repositories.close();
+    }
+
+    private JpaUserRepository repository()
+    {
+        return repositories.create();
+    }
+
+    @Test
+    void cachesIds()
+    {
+        try (JpaUserRepository repository = repository()) {
+            assertEquals(id, repository.getByEmail("email@email.com").getId());
+            assertEquals(id, repository.getByEmail("email@email.com").getId());
+        }
+
+        assertEquals(1, cache.getIds().getStatistics().getHits());
+    }
+
+    @Test
+    void cachedIdReadsThroughEntityCache()
+    {
+        try (JpaUserRepository repository = repository()) {
+            repository.getByEmail("email@email.com");
+        }
+
+        // Both the id and the user are cached, so the user is returned without querying the database.
+        try (JpaUserRepository repository = repository()) {
+            User user = repository.getByEmail("email@email.com");
+            assertNotNull(user);
+            assertFalse(repository.getEntityManager().contains(user));
+        }
+
+        assertEquals(1, cache.getIds().getStatistics().getHits());
+        assertEquals(1, repositories.getCache().getStatistics().getHits());
+    }
+
+    @Test
+    void cachesAbsentEmails()
+    {
+        try (JpaUserRepository repository = repository()) {
+            assertNull(repository.getByEmail("absent@email.com"));
+            assertTrue(cache.isAbsent("absent@email.com"));
+            assertNull(repository.getByEmail("absent@email.com"));
+        }
+    }
+
+    @Test
+    void createInvalidatesAbsentEmail()
+    {
+        try (JpaUserRepository repository = repository()) {
+            assertNull(repository.getByEmail("new@email.com"));
+        }
+
+        try (JpaTransaction transaction = new JpaTransaction(repositories.getConnection().getEntityManagerFactory())) {
+            JpaUserRepository repository = new JpaUserRepository(transaction);
+            repositories.configure(repository);
+            transaction.begin();
+            repository.createUser("new", "new@email.com", "password");
+
+            // A concurrent reader caching the email as absent before the commit.
+            cache.putAbsent("new@email.com");
+            transaction.commit();
+        }
+
+        assertFalse(cache.isAbsent("new@email.com"));
+        try (JpaUserRepository repository = repository()) {
+            assertEquals("new", repository.getByEmail("new@email.com").getName());
+        }
+    }
+
+    @Test
+    void stalePutsAreRejected()
+    {
+        // A reader takes the generation before looking up the email, and a concurrent writer commits a user with the
+        // email before the reader caches the result of the lookup.
+        long generation = cache.getGeneration();
+        repositories.createUser("raced", "raced@email.com");
+
+        assertFalse(cache.putAbsent("raced@email.com", generation));
+        assertFalse(cache.isAbsent("raced@email.com"));
+        assertFalse(cache.put("raced@email.com", id, generation));
+        assertNull(cache.getId("raced@email.com"));
+
+        assertTrue(cache.putAbsent("other@email.com", cache.getGeneration()));
+        try (JpaUserRepository repository = repository()) {
+            assertEquals("raced", repository.getByEmail("raced@email.com").getName());
+        }
+    }
+
+    @Test
+    void changedEmailIsNotReturned()
+    {
+        try (JpaUserRepository repository = repository()) {
+            repository.getByEmail("email@email.com");
+            repository.begin();
+            User user = repository.get(id);
+            user.setEmail("changed@email.com");
+            repository.update(user);
+            repository.commit();
+        }
+
+        // A stale id, cached by a concurrent reader before the commit.
+        cache.put("email@email.com", id);
+        try (JpaUserRepository repository = repository()) {
+            assertNull(repository.getByEmail("email@email.com"));
+            assertEquals(id, repository.getByEmail("changed@email.com").getId());
+        }
+    }
+
+    @Test
+    void deleteInvalidates()
+    {
+        try (JpaUserRepository repository = repository()) {
+            repository.getByEmail("email@email.com");
+            repository.begin();
+            repository.delete(id);
+            repository.commit();
+        }
+
+        try (JpaUserRepository repository = repository()) {
+            assertNull(repository.getByEmail("email@email.com"));
+        }
+    }
+}
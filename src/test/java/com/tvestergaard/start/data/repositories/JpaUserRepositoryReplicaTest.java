@@ -0,0 +1,201 @@
+package com.tvestergaard.start.data.repositories;
+
+import com.tvestergaard.start.JpaTestConnection;
+import com.tvestergaard.start.data.entities.User;
+import com.tvestergaard.start.data.repositories.base.ReplicaRouter;
+import com.tvestergaard.start.data.repositories.base.queries.RepositoryQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JpaUserRepositoryReplicaTest
+{
+
+    private JpaTestConnection primary;
+    private JpaTestConnection replica;
+    private AtomicLong        clock;
+    private ReplicaRouter     router;
+    private long              primaryCount;
+
+    @BeforeEach
+    void setUp()
+    {
+        // The primary and the replica are separate databases, so the data source an operation read from can be told
+        // apart by the user only existing in the replica.
+        primary = new JpaTestConnection(emf -> {});
+        replica = new JpaTestConnection(emf -> {});
+        clock = new AtomicLong();
+        router = new ReplicaRouter(replica.getEntityManagerFactory(), 5, TimeUnit.SECONDS, 100, clock::get);
+
+        try (JpaUserRepository repository = new JpaUserRepository(replica.getEntityManagerFactory())) {
+            repository.begin();
+            repository.createUser("replica", "replica@email.com", "password");
+            repository.commit();
+        }
+
+        try (JpaUserRepository repository = new JpaUserRepository(primary.getEntityManagerFactory())) {
+            primaryCount = repository.count();
+        }
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        primary.close();
+        replica.close();
+    }
+
+    private JpaUserRepository repository()
+    {
+        return repository(null);
+    }
+
+    private JpaUserRepository repository(Object token)
+    {
+        JpaUserRepository repository = new JpaUserRepository(primary.getEntityManagerFactory());
+        repository.setReplicaRouter(router);
+        repository.setReplicaToken(token);
+        return repository;
+    }
+
+    @Test
+    void readsFromReplica()
+    {
+        try (JpaUserRepository repository = repository()) {
+            assertEquals(primaryCount + 1, repository.count());
+            assertNotNull(repository.getByEmail("replica@email.com"));
+            assertEquals(1, repository.query().eq("email", "replica@email.com").count());
+        }
+    }
+
+    @Test
+    void readsFromPrimaryWithinTransaction()
+    {
+        try (JpaUserRepository repository = repository()) {
+            repository.begin();
+            assertEquals(primaryCount, repository.count());
+            assertNull(repository.getByEmail("replica@email.com"));
+        }
+    }
+
+    @Test
+    void readsWritesFromPrimaryWithinWindow()
+    {
+        User created;
+        try (JpaUserRepository repository = repository()) {
+            repository.begin();
+            created = repository.createUser("primary", "primary@email.com", "password");
+            repository.commit();
+
+            assertNull(repository.getByEmail("replica@email.com"));
+        }
+
+        try (JpaUserRepository repository = repository()) {
+            assertNotNull(repository.get(created.getId()));
+            assertNull(repository.getByEmail("replica@email.com"));
+        }
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        try (JpaUserRepository repository = repository()) {
+            assertNotNull(repository.getByEmail("replica@email.com"));
+        }
+    }
+
+    @Test
+    void readsOtherWritersFromReplica()
+    {
+        Object writer = new Object();
+        User   created;
+        try (JpaUserRepository repository = repository(writer)) {
+            repository.begin();
+            created = repository.createUser("primary", "primary@email.com", "password");
+            repository.commit();
+        }
+
+        try (JpaUserRepository repository = repository(writer)) {
+            assertNull(repository.getByEmail("replica@email.com"));
+        }
+
+        // Other writers read the written entity from the primary, and the other entities from the replica.
+        try (JpaUserRepository repository = repository(new Object())) {
+            assertNotNull(repository.get(created.getId()));
+            assertEquals(1, repository.query().eq("email", "replica@email.com").count());
+        }
+
+        try (JpaUserRepository repository = repository()) {
+            assertEquals(primaryCount + 1, repository.count());
+        }
+    }
+
+    @Test
+    void looksUpEmailsOfOtherWritersFromPrimaryWithinWindow()
+    {
+        try (JpaUserRepository repository = repository(new Object())) {
+            repository.begin();
+            repository.createUser("primary", "primary@email.com", "password");
+            repository.commit();
+        }
+
+        // Signing in right after signing up looks up the email under another token, and outside any transaction.
+        try (JpaUserRepository repository = repository(new Object())) {
+            assertNotNull(repository.getByEmail("primary@email.com"));
+            assertNull(repository.getByEmail("replica@email.com"));
+        }
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        try (JpaUserRepository repository = repository(new Object())) {
+            assertNull(repository.getByEmail("primary@email.com"));
+            assertNotNull(repository.getByEmail("replica@email.com"));
+        }
+    }
+
+    @Test
+    void absentEmailsAreNotCachedFromReplica()
+    {
+        UserEmailCache emailCache = new UserEmailCache(100, 0, 1, TimeUnit.MINUTES);
+        try (JpaUserRepository repository = repository()) {
+            repository.setEmailCache(emailCache);
+            assertNull(repository.getByEmail("absent@email.com"));
+            assertNotNull(repository.getByEmail("replica@email.com"));
+        }
+
+        // The replica may lag behind, so it cannot prove that the email is absent.
+        assertFalse(emailCache.isAbsent("absent@email.com"));
+    }
+
+    @Test
+    void writesQueriesToPrimary()
+    {
+        try (JpaUserRepository repository = repository()) {
+            repository.begin();
+            repository.createUser("primary", "primary@email.com", "password");
+            repository.commit();
+        }
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        try (JpaUserRepository repository = repository()) {
+            // The queries are created before the transaction begins, so they read from the replica.
+            RepositoryQuery<Integer, User> replicaQuery = repository.query().eq("email", "replica@email.com");
+            RepositoryQuery<Integer, User> primaryQuery = repository.query().eq("email", "primary@email.com");
+            assertEquals(1, replicaQuery.count());
+            assertEquals(0, primaryQuery.count());
+
+            repository.begin();
+            assertEquals(0, replicaQuery.delete());
+            assertEquals(1, primaryQuery.delete());
+            repository.commit();
+        }
+
+        try (JpaUserRepository repository = repository()) {
+            assertEquals(primaryCount, repository.count());
+        }
+    }
+}
@@ -3,15 +3,33 @@ package com.tvestergaard.start.data.repositories;
 import com.tvestergaard.start.JpaTestConnection;
 import com.tvestergaard.start.data.entities.User;
 import com.tvestergaard.start.data.repositories.base.JpaCrudRepositoryTester;
+import com.tvestergaard.start.data.repositories.base.queries.JpaRepositoryQuery;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DynamicTest;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestFactory;
 
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class JpaUserRepositoryTest
 {
@@ -40,6 +58,140 @@ public class JpaUserRepositoryTest
         return map;
     }
 
+    @Test
+    void getAndExistsInBatches()
+    {
+        try (JpaUserRepository tur = new JpaUserRepository(JpaTestConnection.create())) {
+            tur.begin();
+            TreeMap<Integer, User> users = createUserMap(tur);
+
+            Set<Integer> ids = new HashSet<>(users.keySet());
+            for (int i = 1; ids.size() < JpaRepositoryQuery.IN_BATCH_SIZE * 2 + 1; i++)
+                ids.add(-i);
+
+            Map<Integer, User> result = tur.get(ids);
+            assertEquals(users.size(), result.size());
+            for (User user : users.values())
+                assertEquals(user, result.get(user.getId()));
+
+            assertFalse(tur.exists(ids));
+            assertTrue(tur.exists(users.keySet()));
+        }
+    }
+
+    @Test
+    void queryInBatches()
+    {
+        try (JpaUserRepository tur = new JpaUserRepository(JpaTestConnection.create())) {
+            tur.begin();
+            TreeMap<Integer, User> users = createUserMap(tur);
+
+            // The existing users are placed in separate batches, which are executed as separate statements.
+            List<Integer> ids = new ArrayList<>();
+            ids.add(users.firstKey());
+            for (int i = 1; ids.size() < JpaRepositoryQuery.IN_BATCH_SIZE * 2; i++)
+                ids.add(-i);
+            ids.add(users.lastKey());
+
+            assertEquals(2, tur.query().in("id", ids).count());
+            assertEquals(Arrays.asList(users.firstKey(), users.lastKey()), tur.query().in("id", ids).getKeys());
+            assertEquals(1, tur.query().in("id", ids).limit(1).get().size());
+            assertTrue(tur.query().in("id", ids).exists());
+            assertEquals(2, tur.query().in("id", ids).delete());
+            assertFalse(tur.query().in("id", ids).exists());
+        }
+    }
+
+    @Test
+    void queryUpdate()
+    {
+        try (JpaUserRepository tur = new JpaUserRepository(JpaTestConnection.create())) {
+            tur.begin();
+            TreeMap<Integer, User> users = createUserMap(tur);
+
+            Map<String, Object> assignments = new LinkedHashMap<>();
+            assignments.put("name", "renamed");
+            assignments.put("passwordHash", "hash");
+            assertEquals(2, tur.query().in("id", users.firstKey(), users.lastKey()).update(assignments));
+            assertEquals(2, tur.query().eq("name", "renamed").eq("passwordHash", "hash").count());
+
+            assertEquals(1, tur.query().eq("name", "renamed").asc("id").limit(1)
+                               .update(Collections.singletonMap("createdAt", null)));
+            tur.getEntityManager().clear();
+            assertNull(tur.get(users.firstKey()).getCreatedAt());
+            assertNotNull(tur.get(users.lastKey()).getCreatedAt());
+
+            assertThrows(IllegalArgumentException.class, () -> tur.query().update(new LinkedHashMap<>()));
+            assertThrows(IllegalArgumentException.class, () -> tur.query().update(Collections.singletonMap("id", 1)));
+        }
+    }
+
+    private List<User> createUsers(String prefix, int n)
+    {
+        List<User> users = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++)
+            users.add(new User(prefix + i, prefix + i + "@email.com", "password"));
+
+        return users;
+    }
+
+    @Test
+    void persistAll()
+    {
+        try (JpaUserRepository tur = new JpaUserRepository(JpaTestConnection.create())) {
+            tur.begin();
+            List<User> users = tur.persistAll(createUsers("batch", 120));
+            for (User user : users)
+                assertNotNull(user.getId());
+
+            assertEquals(120, tur.count());
+            assertEquals(120, tur.query().like("email", "batch%").count());
+        }
+    }
+
+    @Test
+    void persistAllWithPooledIds()
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("rest-api-test-pooled-ids-pu");
+        try (JpaUserRepository tur = new JpaUserRepository(emf)) {
+            Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+            tur.begin();
+            statistics.clear();
+            List<User> users = tur.persistAll(createUsers("pooled", 120));
+            tur.commit();
+
+            assertEquals(120, statistics.getEntityInsertCount());
+            assertTrue(statistics.getPrepareStatementCount() < 20);
+            assertEquals(120, new HashSet<>(tur.query().getKeys()).size());
+            for (User user : users)
+                assertNotNull(user.getId());
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    void updateDetached()
+    {
+        try (JpaUserRepository tur = new JpaUserRepository(JpaTestConnection.create())) {
+            tur.begin();
+            User user = tur.createUser("detached", "detached@email.com", "password");
+            tur.getEntityManager().flush();
+            tur.getEntityManager().detach(user);
+
+            user.setName("merged");
+            User updated = tur.update(user);
+            assertTrue(tur.getEntityManager().contains(updated));
+            assertFalse(tur.getEntityManager().contains(user));
+            assertEquals("merged", updated.getName());
+            assertEquals(updated, tur.update(updated));
+
+            tur.getEntityManager().flush();
+            tur.getEntityManager().clear();
+            assertEquals("merged", tur.get(user.getId()).getName());
+        }
+    }
+
     @Test
     void getByEmail()
     {
@@ -52,4 +204,36 @@ public class JpaUserRepositoryTest
             assertEquals(user, tur.getByEmail("some@email.com"));
         }
     }
+
+    @Test
+    void readOnly()
+    {
+        JpaTestConnection connection = new JpaTestConnection(emf -> {});
+        try {
+            Integer id;
+            try (JpaUserRepository tur = new JpaUserRepository(connection.getEntityManagerFactory())) {
+                tur.begin();
+                id = tur.createUser("read-only", "read-only@email.com", "password").getId();
+                tur.commit();
+            }
+
+            try (JpaUserRepository tur = new JpaUserRepository(connection.getEntityManagerFactory())) {
+                tur.setReadOnly(true);
+                tur.begin();
+                Session session = tur.getEntityManager().unwrap(Session.class);
+                session.doWork(c -> assertTrue(c.isReadOnly()));
+
+                User user = tur.get(id);
+                assertTrue(session.isReadOnly(user));
+                user.setName("changed");
+                tur.commit();
+            }
+
+            try (JpaUserRepository tur = new JpaUserRepository(connection.getEntityManagerFactory())) {
+                assertEquals("read-only", tur.get(id).getName());
+            }
+        } finally {
+            connection.close();
+        }
+    }
 }
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.DynamicTest;
 import java.util.*;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -32,6 +33,11 @@ public class JpaCrudRepositoryTester<
         tests.add(createDeleteEntityTest());
         tests.add(createDeleteKeyCollection());
         tests.add(createDeleteListOfEntitiesTest());
+        tests.add(createChunkDeleteTest());
+        tests.add(createDeleteAllTest());
+        tests.add(createDeleteExistingTest());
+        tests.add(createQueryDeleteTest());
+        tests.add(createUpsertTest());
 
         return tests;
     }
@@ -93,11 +99,19 @@ public class JpaCrudRepositoryTester<
         return DynamicTest.dynamicTest("delete(K...)", () -> {
             try (I instance = constructor.get()) {
                 instance.begin();
-                Map<K, E> data    = dataProducer.apply(instance);
-                Map<K, E> deleted = instance.delete(data.keySet());
+                Map<K, E> data = dataProducer.apply(instance);
+                Set<K>    keys = new HashSet<>(data.keySet());
+                keys.add(unknownKey);
+                Map<K, E> deleted = instance.delete(keys);
 
-                for (Map.Entry<K, E> entry : deleted.entrySet())
-                    assertFalse(instance.exists(entry.getKey()));
+                assertEquals(keys, deleted.keySet());
+                assertNull(deleted.get(unknownKey));
+                for (K key : data.keySet()) {
+                    assertEquals(key, deleted.get(key).getId());
+                    assertFalse(instance.exists(key));
+                    assertFalse(instance.getEntityManager().contains(data.get(key)));
+                    assertNull(instance.get(key));
+                }
             }
         });
     }
@@ -112,8 +126,105 @@ public class JpaCrudRepositoryTester<
                 for (E entity : data.values())
                     assertTrue(instance.exists(entity.getId()));
                 instance.delete(new ArrayList<>(data.values()));
-                for (E entity : data.values())
+                for (E entity : data.values()) {
                     assertFalse(instance.exists(entity.getId()));
+                    assertFalse(instance.getEntityManager().contains(entity));
+                    assertNull(instance.get(entity.getId()));
+                }
+            }
+        });
+    }
+
+    public DynamicTest createChunkDeleteTest()
+    {
+        return DynamicTest.dynamicTest("query.chunk + delete(K)", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                Set<K> data    = new HashSet<>(dataProducer.apply(instance).keySet());
+                Set<K> visited = new HashSet<>();
+
+                assertTrue(instance.query().chunk(2, (chunk, stopper) -> {
+                    for (E entity : chunk.getResults()) {
+                        assertTrue(visited.add(entity.getId()));
+                        instance.delete(entity.getId());
+                    }
+                }));
+
+                assertEquals(data, visited);
+                assertEquals(0, instance.count());
+            }
+        });
+    }
+
+    public DynamicTest createDeleteAllTest()
+    {
+        return DynamicTest.dynamicTest("deleteAll(K...)", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                Set<K> keys = new HashSet<>(dataProducer.apply(instance).keySet());
+                keys.add(unknownKey);
+
+                assertEquals(keys.size() - 1, instance.deleteAll(keys));
+                assertEquals(0, instance.count());
+                assertEquals(0, instance.deleteAll(new ArrayList<>()));
+            }
+        });
+    }
+
+    public DynamicTest createDeleteExistingTest()
+    {
+        return DynamicTest.dynamicTest("deleteExisting(K...)", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                Set<K> data = new HashSet<>(dataProducer.apply(instance).keySet());
+                Set<K> keys = new HashSet<>(data);
+                keys.add(unknownKey);
+
+                assertEquals(data, instance.deleteExisting(keys));
+                assertEquals(0, instance.count());
+                assertTrue(instance.deleteExisting(data).isEmpty());
+            }
+        });
+    }
+
+    public DynamicTest createQueryDeleteTest()
+    {
+        return DynamicTest.dynamicTest("query.delete", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<K> keys = new ArrayList<>(dataProducer.apply(instance).keySet());
+
+                assertEquals(1, instance.query().eq(instance.kAttribute, keys.get(0)).delete());
+                assertFalse(instance.exists(keys.get(0)));
+                assertEquals(0, instance.query().eq(instance.kAttribute, unknownKey).delete());
+
+                assertEquals(2, instance.query().asc(instance.kAttribute).limit(2).delete());
+                assertFalse(instance.exists(keys.get(1)));
+                assertFalse(instance.exists(keys.get(2)));
+
+                assertEquals(keys.size() - 3, instance.query().delete());
+                assertEquals(0, instance.count());
+            }
+        });
+    }
+
+    public DynamicTest createUpsertTest()
+    {
+        return DynamicTest.dynamicTest("upsert", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                TreeMap<K, E> data  = dataProducer.apply(instance);
+                E             first = data.firstEntry().getValue();
+
+                instance.getEntityManager().detach(first);
+                assertEquals(first.getId(), instance.upsert(first).getId());
+                assertEquals(data.size(), instance.count());
+
+                List<E> upserted = instance.upsertAll(new ArrayList<>(data.values()));
+                assertEquals(data.size(), upserted.size());
+                assertEquals(new ArrayList<>(data.keySet()), upserted.stream().map(E::getId).collect(Collectors.toList()));
+                assertEquals(data.size(), instance.count());
+                assertTrue(instance.upsertAll(new ArrayList<>()).isEmpty());
             }
         });
     }
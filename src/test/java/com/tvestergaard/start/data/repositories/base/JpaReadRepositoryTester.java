@@ -1,12 +1,19 @@
 package com.tvestergaard.start.data.repositories.base;
 
+import com.tvestergaard.start.data.repositories.base.queries.Cursor;
+import com.tvestergaard.start.data.repositories.base.queries.CursorPage;
+import com.tvestergaard.start.data.repositories.base.queries.JpaRepositoryQuery;
+import com.tvestergaard.start.data.repositories.base.queries.Page;
 import com.tvestergaard.start.data.repositories.base.queries.RepositoryQuery;
+import com.tvestergaard.start.data.repositories.base.queries.Row;
+import com.tvestergaard.start.data.repositories.base.queries.tree.Aggregate;
 import org.junit.jupiter.api.DynamicTest;
 
 import java.util.*;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -191,6 +198,7 @@ public class JpaReadRepositoryTester<
                 createQueryWhereNotTest(),
                 createQueryWhereInTest(),
                 createQueryWhereNotInTest(),
+                createQueryWhereInBatchesTest(),
                 createQueryWhereGtTest(),
                 createQueryWhereLtTest(),
                 createQueryWhereGtoeTest(),
@@ -209,7 +217,18 @@ public class JpaReadRepositoryTester<
                 createQueryMinTest(),
                 createQueryGetAttributesTest(),
                 createQueryGetKeysTest(),
-                createQueryChunkTest()
+                createQueryChunkTest(),
+                createQueryCompiledShapeTest(),
+                createQueryGetPageAfterTest(),
+                createQueryDescGetPageAfterTest(),
+                createQueryStreamTest(),
+                createQueryForEachTest(),
+                createQueryProjectTest(),
+                createQueryProjectClassTest(),
+                createQuerySumAvgTest(),
+                createQueryCountDistinctTest(),
+                createQueryGroupByTest(),
+                createQueryGetPageWithTotalTest()
         );
     }
 
@@ -259,6 +278,29 @@ public class JpaReadRepositoryTester<
         });
     }
 
+    private DynamicTest createQueryWhereInBatchesTest()
+    {
+        return DynamicTest.dynamicTest("query.in + query.notIn in batches", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<E> data = new ArrayList<>(dataProducer.apply(instance).values());
+
+                List<K> large = new ArrayList<>();
+                while (large.size() < JpaRepositoryQuery.IN_BATCH_SIZE * 2 + 1) {
+                    large.add(unknownKey);
+                    large.addAll(keys(data));
+                }
+
+                assertEquals(keys(data), instance.query().in(instance.kAttribute, large).getKeys());
+                assertEquals(0, instance.query().notIn(instance.kAttribute, large).count());
+                assertEquals(data.size() - 1,
+                             instance.query()
+                                     .notIn(instance.kAttribute, large.subList(0, 2))
+                                     .count());
+            }
+        });
+    }
+
     private List<K> keys(List<E> elements)
     {
         return elements.stream().map(E::getId).collect(Collectors.toList());
@@ -474,7 +516,14 @@ public class JpaReadRepositoryTester<
                 K       key  = data.get(0).getId();
                 assertTrue(instance.query().contains(key));
                 assertFalse(instance.query().not(instance.kAttribute, key).contains(key));
+                assertFalse(instance.query().contains(unknownKey));
+
+                // Test that contains() does not modify the query.
+                RepositoryQuery<K, E> query = instance.query();
+                assertTrue(query.contains(key));
+                assertEquals(data.size(), query.count());
 
+                assertFalse(instance.query().eq(instance.kAttribute, unknownKey).exists());
                 assertFalse(instance.exists(unknownKey));
             }
         });
@@ -567,10 +616,253 @@ public class JpaReadRepositoryTester<
 
                 // Test that chunk() returns false when the chunk was stopped.
                 assertFalse(instance.query().chunk(2, ((chunk, stopper) -> stopper.run())));
+
+                // The entity manager is cleared after each chunk, so the keys of the results are compared.
+                List<K> skipped = new ArrayList<>();
+                assertTrue(instance.query().skip(1).chunk(2, (chunk, stopper) -> {
+                    for (E entity : chunk.getResults())
+                        skipped.add(entity.getId());
+                }));
+                assertEquals(data.stream().skip(1).map(E::getId).collect(Collectors.toList()), skipped);
+
+                assertTrue(instance.query().skip(data.size()).chunk(2, (chunk, stopper) -> fail("Unexpected chunk.")));
+            }
+        });
+    }
+
+    private DynamicTest createQueryCompiledShapeTest()
+    {
+        return DynamicTest.dynamicTest("query compiled shape reuse", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<E> data = new ArrayList<>(dataProducer.apply(instance).values());
+
+                assertEquals(data.get(0), instance.query().eq(instance.kAttribute, data.get(0).getId()).getFirst());
+                int compiled = JpaRepositoryQuery.getCompiledQueryCount();
+                for (E e : data)
+                    assertEquals(e, instance.query().eq(instance.kAttribute, e.getId()).getFirst());
+
+                assertEquals(compiled, JpaRepositoryQuery.getCompiledQueryCount());
+            }
+        });
+    }
+
+    private DynamicTest createQueryGetPageAfterTest()
+    {
+        return DynamicTest.dynamicTest("query.getPageAfter", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<E> data = new ArrayList<>(dataProducer.apply(instance).values());
+
+                List<E> results = new ArrayList<>();
+                Cursor  cursor  = null;
+                do {
+                    CursorPage<E> page = instance.query().getPageAfter(2, cursor);
+                    assertTrue(page.getResults().size() <= 2);
+                    results.addAll(page.getResults());
+                    cursor = page.getNext() == null ? null : Cursor.decode(page.getNext().encode());
+                } while (cursor != null);
+
+                assertEquals(data, results);
+                assertEquals(data.subList(1, data.size()),
+                             instance.query().after(Cursor.of(data.get(0).getId())).get());
+            }
+        });
+    }
+
+    private DynamicTest createQueryDescGetPageAfterTest()
+    {
+        return DynamicTest.dynamicTest("query.desc + query.getPageAfter", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<E> data = new ArrayList<>(dataProducer.apply(instance).values());
+                Collections.reverse(data);
+
+                CursorPage<E> first = instance.query().desc(instance.kAttribute).getPageAfter(data.size() - 1, null);
+                assertEquals(data.subList(0, data.size() - 1), first.getResults());
+                assertTrue(first.hasNext());
+
+                CursorPage<E> last = instance.query().desc(instance.kAttribute).getPageAfter(2, first.getNext());
+                assertEquals(data.subList(data.size() - 1, data.size()), last.getResults());
+                assertFalse(last.hasNext());
+            }
+        });
+    }
+
+    private DynamicTest createQueryStreamTest()
+    {
+        return DynamicTest.dynamicTest("query.stream", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<E> data = new ArrayList<>(dataProducer.apply(instance).values());
+
+                try (Stream<E> stream = instance.query().stream(2)) {
+                    List<E> results = stream.collect(Collectors.toList());
+                    assertEquals(data, results);
+                    for (E result : results)
+                        assertFalse(instance.getEntityManager().contains(result));
+                }
+
+                try (Stream<E> stream = instance.query().skip(1).limit(1).stream()) {
+                    assertEquals(Collections.singletonList(data.get(1).getId()),
+                                 stream.map(E::getId).collect(Collectors.toList()));
+                }
+            }
+        });
+    }
+
+    private DynamicTest createQueryForEachTest()
+    {
+        return DynamicTest.dynamicTest("query.forEach", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<E> data = new ArrayList<>(dataProducer.apply(instance).values());
+
+                List<E> results = new ArrayList<>();
+                instance.query().forEach(results::add);
+                assertEquals(data, results);
+            }
+        });
+    }
+
+    private DynamicTest createQueryProjectTest()
+    {
+        return DynamicTest.dynamicTest("query.project", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<E> data = new ArrayList<>(dataProducer.apply(instance).values());
+                List<K> keys = data.stream().map(E::getId).collect(Collectors.toList());
+
+                List<Row> single = instance.query().project(instance.kAttribute);
+                assertEquals(keys, single.stream().map(row -> row.get(0)).collect(Collectors.toList()));
+
+                List<Row> multiple = instance.query().skip(1).project(instance.kAttribute, instance.kAttribute);
+                assertEquals(keys.subList(1, keys.size()),
+                             multiple.stream().map(row -> row.get(instance.kAttribute)).collect(Collectors.toList()));
+                for (Row row : multiple) {
+                    assertEquals(2, row.size());
+                    assertEquals(row.get(0), row.get(1));
+                }
+            }
+        });
+    }
+
+    private DynamicTest createQueryProjectClassTest()
+    {
+        return DynamicTest.dynamicTest("query.project(Class)", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<E> data = new ArrayList<>(dataProducer.apply(instance).values());
+
+                List<KeyProjection> results = instance.query().project(KeyProjection.class, instance.kAttribute);
+                assertEquals(data.stream().map(E::getId).collect(Collectors.toList()),
+                             results.stream().map(projection -> projection.key).collect(Collectors.toList()));
             }
         });
     }
 
+    private DynamicTest createQuerySumAvgTest()
+    {
+        return DynamicTest.dynamicTest("query.sum + query.avg", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<E> data = new ArrayList<>(dataProducer.apply(instance).values());
+                if (!(data.get(0).getId() instanceof Number)) {
+                    fail("Cannot test query.sum, the key is not numeric.");
+                    return;
+                }
+
+                long sum = data.stream().mapToLong(e -> ((Number) e.getId()).longValue()).sum();
+                assertEquals(Long.valueOf(sum), instance.query().sum(instance.kAttribute, Long.class));
+                assertEquals((double) sum / data.size(), instance.query().avg(instance.kAttribute), 0.0001);
+
+                K first = data.get(0).getId();
+                assertEquals(Long.valueOf(((Number) first).longValue()),
+                             instance.query().eq(instance.kAttribute, first).sum(instance.kAttribute, Long.class));
+                assertNull(instance.query().eq(instance.kAttribute, unknownKey).sum(instance.kAttribute, Long.class));
+            }
+        });
+    }
+
+    private DynamicTest createQueryCountDistinctTest()
+    {
+        return DynamicTest.dynamicTest("query.countDistinct", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<E> data = new ArrayList<>(dataProducer.apply(instance).values());
+                assertEquals(data.size(), instance.query().countDistinct(instance.kAttribute));
+                assertEquals(data.size() - 1,
+                             instance.query().not(instance.kAttribute, data.get(0).getId())
+                                     .countDistinct(instance.kAttribute));
+            }
+        });
+    }
+
+    private DynamicTest createQueryGroupByTest()
+    {
+        return DynamicTest.dynamicTest("query.groupBy", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<E> data = new ArrayList<>(dataProducer.apply(instance).values());
+                List<K> keys = data.stream().map(E::getId).collect(Collectors.toList());
+
+                Map<K, Long> counts = instance.query().desc(instance.kAttribute)
+                                              .groupBy(instance.kAttribute, instance.kClass);
+                assertEquals(keys, new ArrayList<>(counts.keySet()));
+                for (Long count : counts.values())
+                    assertEquals(Long.valueOf(1), count);
+
+                Map<K, K> max = instance.query().skip(1).groupBy(instance.kAttribute,
+                                                                 instance.kClass,
+                                                                 Aggregate.MAX,
+                                                                 instance.kAttribute,
+                                                                 instance.kClass);
+                assertEquals(keys, new ArrayList<>(max.values()));
+            }
+        });
+    }
+
+    private DynamicTest createQueryGetPageWithTotalTest()
+    {
+        return DynamicTest.dynamicTest("query.getPageWithTotal", () -> {
+            try (I instance = constructor.get()) {
+                instance.begin();
+                List<E> data = new ArrayList<>(dataProducer.apply(instance).values());
+                if (data.size() < 3) {
+                    fail("Cannot test query.getPageWithTotal, not enough data.");
+                    return;
+                }
+
+                int pages = (data.size() + 1) / 2;
+                for (int page = 1; page <= pages + 1; page++) {
+                    Page<E> result = instance.query().getPageWithTotal(2, page);
+                    assertEquals(keys(instance.query().getPage(2, page)), keys(result.getResults()));
+                    assertEquals(data.size(), result.getTotal());
+                    assertEquals(pages, result.getPageCount());
+                }
+
+                Page<E> skipped = instance.query().skip(data.size() + 1).getPageWithTotal(2, 1);
+                assertTrue(skipped.getResults().isEmpty());
+                assertEquals(data.size(), skipped.getTotal());
+
+                Page<E> filtered = instance.query().not(instance.kAttribute, data.get(0).getId())
+                                           .getPageWithTotal(data.size(), 1);
+                assertEquals(data.size() - 1, filtered.getResults().size());
+                assertEquals(data.size() - 1, filtered.getTotal());
+            }
+        });
+    }
+
+    public static class KeyProjection
+    {
+        public final Object key;
+
+        public KeyProjection(Object key)
+        {
+            this.key = key;
+        }
+    }
+
     private class CountingChunker<E> implements RepositoryQuery.Chunker<E>
     {
         public int missing;
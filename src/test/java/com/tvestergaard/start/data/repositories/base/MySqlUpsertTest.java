@@ -0,0 +1,142 @@
+package com.tvestergaard.start.data.repositories.base;
+
+import com.tvestergaard.start.JpaTestConnection;
+import com.tvestergaard.start.data.entities.User;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jdbc.Work;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MySqlUpsertTest
+{
+
+    private static EntityManagerFactory mysql;
+
+    @BeforeAll
+    static void setUp()
+    {
+        // Only the statements are generated, so the MySQL dialect is used against the test database.
+        Map<String, String> options = new HashMap<>();
+        options.put("hibernate.dialect", "org.hibernate.dialect.MySQL57Dialect");
+        options.put("hibernate.hbm2ddl.auto", "none");
+        options.put("hibernate.connection.url", "jdbc:derby:memory:unit-testing-mysql-upsert;create=true");
+        mysql = Persistence.createEntityManagerFactory("rest-api-test-pu", options);
+    }
+
+    @AfterAll
+    static void tearDown()
+    {
+        mysql.close();
+    }
+
+    @Test
+    void createStatement()
+    {
+        MySqlUpsert<User> upsert = MySqlUpsert.of(mysql.unwrap(SessionFactoryImplementor.class), User.class);
+
+        assertEquals("INSERT INTO user_ (id, createdAt, email, name, passwordHash) VALUES (?, ?, ?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id), email = VALUES(email), name = VALUES(name), " +
+                     "passwordHash = VALUES(passwordHash)",
+                     upsert.createStatement(true));
+
+        assertEquals("INSERT INTO user_ (createdAt, email, name, passwordHash) VALUES (?, ?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id), email = VALUES(email), name = VALUES(name), " +
+                     "passwordHash = VALUES(passwordHash)",
+                     upsert.createStatement(false));
+    }
+
+    @Test
+    void otherDialectsAreNotSupported()
+    {
+        assertNull(MySqlUpsert.of(JpaTestConnection.create().unwrap(SessionFactoryImplementor.class), User.class));
+    }
+
+    /**
+     * Returns a session executing its work upon the provided connection.
+     */
+    private SessionImplementor session(Connection connection)
+    {
+        SessionImplementor session = mock(SessionImplementor.class);
+        when(session.unwrap(SessionImplementor.class)).thenReturn(session);
+        when(session.remapSqlTypeDescriptor(any())).thenAnswer(invocation -> invocation.getArguments()[0]);
+        doAnswer(invocation -> {
+            ((Work) invocation.getArguments()[0]).execute(connection);
+            return null;
+        }).when(session).doWork(any(Work.class));
+
+        return session;
+    }
+
+    /**
+     * Returns a statement reading the provided values of {@code LAST_INSERT_ID()}, one per query.
+     */
+    private Statement lastInsertIds(Long... ids) throws SQLException
+    {
+        ResultSet[] rest = new ResultSet[ids.length - 1];
+        for (int i = 1; i < ids.length; i++)
+            rest[i - 1] = lastInsertId(ids[i]);
+
+        ResultSet first     = lastInsertId(ids[0]);
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery("SELECT LAST_INSERT_ID()")).thenReturn(first, rest);
+        return statement;
+    }
+
+    private ResultSet lastInsertId(Long id) throws SQLException
+    {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getObject(1)).thenReturn(id);
+        return resultSet;
+    }
+
+    @Test
+    void readsKeysOfUpdatedRows() throws Exception
+    {
+        MySqlUpsert<User> upsert = MySqlUpsert.of(mysql.unwrap(SessionFactoryImplementor.class), User.class);
+        assertTrue(upsert.readsKeys());
+
+        // The first user collides with the email of the user with key 7, while the second user is inserted.
+        Connection        connection = mock(Connection.class);
+        PreparedStatement statement  = mock(PreparedStatement.class);
+        Statement         query      = lastInsertIds(7L, 0L);
+        when(connection.prepareStatement(upsert.createStatement(true))).thenReturn(statement);
+        when(connection.createStatement()).thenReturn(query);
+
+        User colliding = new User("colliding", "existing@email.com", "password");
+        User inserted  = new User("inserted", "inserted@email.com", "password");
+        colliding.setId(3);
+        inserted.setId(4);
+        upsert.execute(session(connection), Arrays.asList(colliding, inserted));
+
+        assertEquals(Integer.valueOf(7), colliding.getId());
+        assertEquals(Integer.valueOf(4), inserted.getId());
+        verify(query, times(2)).execute("SELECT LAST_INSERT_ID(0)");
+        verify(statement, times(2)).executeUpdate();
+        verify(statement, never()).executeBatch();
+    }
+}
@@ -0,0 +1,52 @@
+package com.tvestergaard.start.data.repositories.base.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest
+{
+
+    @Test
+    void containsAddedValues()
+    {
+        BloomFilter<String> filter = BloomFilter.ofStrings(1000, 0.01);
+        for (int i = 0; i < 1000; i++)
+            filter.put("user" + i + "@email.com");
+
+        for (int i = 0; i < 1000; i++)
+            assertTrue(filter.mightContain("user" + i + "@email.com"));
+    }
+
+    @Test
+    void falsePositiveRateIsBounded()
+    {
+        BloomFilter<String> filter = BloomFilter.ofStrings(1000, 0.01);
+        for (int i = 0; i < 1000; i++)
+            filter.put("user" + i + "@email.com");
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++)
+            if (filter.mightContain("other" + i + "@email.com"))
+                falsePositives++;
+
+        assertTrue(falsePositives < 300, "False positives: " + falsePositives);
+    }
+
+    @Test
+    void emptyFilterContainsNothing()
+    {
+        BloomFilter<String> filter = BloomFilter.ofStrings(10, 0.01);
+        assertFalse(filter.mightContain(""));
+        assertFalse(filter.mightContain("user@email.com"));
+    }
+
+    @Test
+    void rejectsInvalidFalsePositiveRate()
+    {
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.ofStrings(10, 0));
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.ofStrings(10, 1));
+    }
+}
@@ -0,0 +1,157 @@
+package com.tvestergaard.start.data.repositories.base.cache;
+
+import com.tvestergaard.start.data.entities.User;
+import com.tvestergaard.start.data.repositories.CachedUserRepositories;
+import com.tvestergaard.start.data.repositories.JpaUserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JpaReadRepositoryCacheTest
+{
+
+    private CachedUserRepositories  repositories;
+    private LruCache<Integer, User> cache;
+    private Integer                 first;
+    private Integer                 second;
+
+    @BeforeEach
+    void setUp()
+    {
+        repositories = new CachedUserRepositories();
+        cache = repositories.getCache();
+        first = repositories.createUser("cache1", "cache1@email.com");
+        second = repositories.createUser("cache2", "cache2@email.com");
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        repositories.close();
+    }
+
+    private JpaUserRepository repository()
+    {
+        return repositories.create();
+    }
+
+    @Test
+    void getReadsThroughCache()
+    {
+        try (JpaUserRepository repository = repository()) {
+            assertEquals("cache1", repository.get(first).getName());
+        }
+
+        try (JpaUserRepository repository = repository()) {
+            User cached = repository.get(first);
+            assertEquals("cache1", cached.getName());
+            assertFalse(repository.getEntityManager().contains(cached));
+            assertNotSame(cached, repository.get(first));
+        }
+
+        assertEquals(1, cache.getStatistics().getMisses());
+        assertEquals(2, cache.getStatistics().getHits());
+    }
+
+    @Test
+    void changesToReturnedEntitiesDoNotReachCache()
+    {
+        try (JpaUserRepository repository = repository()) {
+            repository.get(first);
+            repository.get(first).setName("changed");
+            assertEquals("cache1", repository.get(first).getName());
+        }
+    }
+
+    @Test
+    void getSetReadsThroughCache()
+    {
+        try (JpaUserRepository repository = repository()) {
+            repository.get(first);
+            Map<Integer, User> users = repository.get(new HashSet<>(Arrays.asList(first, second, -1)));
+            assertEquals(2, users.size());
+            assertEquals("cache1", users.get(first).getName());
+            assertEquals("cache2", users.get(second).getName());
+        }
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getStatistics().getHits());
+    }
+
+    @Test
+    void updateInvalidates()
+    {
+        try (JpaUserRepository repository = repository()) {
+            User user = repository.get(first);
+            repository.get(first);
+
+            repository.begin();
+            user.setName("updated");
+            repository.update(user);
+            assertEquals("updated", repository.get(first).getName());
+            repository.commit();
+        }
+
+        try (JpaUserRepository repository = repository()) {
+            assertEquals("updated", repository.get(first).getName());
+        }
+    }
+
+    @Test
+    void deleteInvalidates()
+    {
+        try (JpaUserRepository repository = repository()) {
+            repository.get(first);
+            repository.begin();
+            repository.delete(first);
+            repository.commit();
+        }
+
+        try (JpaUserRepository repository = repository()) {
+            assertNull(repository.get(first));
+        }
+    }
+
+    @Test
+    void bulkDeleteInvalidates()
+    {
+        try (JpaUserRepository repository = repository()) {
+            repository.get(first);
+            repository.get(second);
+            repository.begin();
+            assertEquals(1, repository.deleteAll(Arrays.asList(first)));
+            assertEquals(1, repository.query().eq("id", second).delete());
+            repository.commit();
+        }
+
+        try (JpaUserRepository repository = repository()) {
+            assertNull(repository.get(first));
+            assertNull(repository.get(second));
+        }
+    }
+
+    @Test
+    void rollbackInvalidates()
+    {
+        try (JpaUserRepository repository = repository()) {
+            repository.begin();
+            User user = repository.get(first);
+            user.setName("rolled back");
+            repository.update(user);
+            repository.rollback();
+        }
+
+        try (JpaUserRepository repository = repository()) {
+            assertEquals("cache1", repository.get(first).getName());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.tvestergaard.start.data.repositories.base.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LruCacheTest
+{
+
+    @Test
+    void getCountsHitsAndMisses()
+    {
+        LruCache<Integer, String> cache = new LruCache<>(10);
+        cache.put(1, "a");
+
+        assertEquals("a", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(1, cache.getStatistics().getHits());
+        assertEquals(1, cache.getStatistics().getMisses());
+        assertEquals(0.5, cache.getStatistics().getHitRate());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed()
+    {
+        LruCache<Integer, String> cache = new LruCache<>(2);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.get(1);
+        cache.put(3, "c");
+
+        assertEquals(2, cache.size());
+        assertEquals("a", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("c", cache.get(3));
+        assertEquals(1, cache.getStatistics().getEvictions());
+    }
+
+    @Test
+    void expiresAfterTimeToLive()
+    {
+        AtomicLong                time  = new AtomicLong();
+        LruCache<Integer, String> cache = new LruCache<>(10, 5, TimeUnit.SECONDS, time::get);
+        cache.put(1, "a");
+
+        time.set(TimeUnit.SECONDS.toNanos(4));
+        assertEquals("a", cache.get(1));
+
+        time.set(TimeUnit.SECONDS.toNanos(5));
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getStatistics().getExpirations());
+    }
+
+    @Test
+    void invalidate()
+    {
+        LruCache<Integer, String> cache = new LruCache<>(10);
+        cache.put(1, "a");
+        cache.put(2, "b");
+
+        cache.invalidate(1);
+        assertNull(cache.get(1));
+        assertEquals("b", cache.get(2));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void putWithGeneration()
+    {
+        LruCache<Integer, String> cache = new LruCache<>(10);
+
+        long generation = cache.getGeneration();
+        assertTrue(cache.put(1, "a", generation));
+        assertEquals("a", cache.get(1));
+
+        // A value read before a concurrent invalidation is not cached.
+        cache.invalidate(2);
+        assertFalse(cache.put(2, "b", generation));
+        assertNull(cache.get(2));
+        assertTrue(cache.put(2, "b", cache.getGeneration()));
+    }
+}
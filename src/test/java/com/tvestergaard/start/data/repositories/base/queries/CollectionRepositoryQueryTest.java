@@ -0,0 +1,184 @@
+package com.tvestergaard.start.data.repositories.base.queries;
+
+import com.tvestergaard.start.JpaTestConnection;
+import com.tvestergaard.start.data.entities.User;
+import com.tvestergaard.start.data.repositories.JpaUserRepository;
+import com.tvestergaard.start.data.repositories.base.queries.tree.Aggregate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollectionRepositoryQueryTest
+{
+
+    /**
+     * Executes the provided query against both the database and the entities retrieved from the database, asserting
+     * that the results are equal.
+     */
+    private void assertParity(Function<RepositoryQuery<Integer, User>, Object> query)
+    {
+        try (JpaUserRepository repository = new JpaUserRepository(JpaTestConnection.create())) {
+            repository.begin();
+            for (int i = 1; i <= 7; i++)
+                repository.createUser("collection" + (i % 3), "collection" + i + "@email.com", "password" + i);
+
+            List<User> source = repository.getAll();
+            assertEquals(simplify(query.apply(repository.query())),
+                         simplify(query.apply(new CollectionRepositoryQuery<>(source, "id"))));
+        }
+    }
+
+    private Object simplify(Object result)
+    {
+        if (result instanceof User)
+            return ((User) result).getId();
+        if (result instanceof List)
+            return ((List<?>) result).stream().map(this::simplify).collect(Collectors.toList());
+        if (result instanceof Row)
+            return Arrays.asList(((Row) result).toArray());
+        if (result instanceof CursorPage)
+            return Arrays.asList(simplify(((CursorPage) result).getResults()), ((CursorPage) result).hasNext());
+
+        return result;
+    }
+
+    @Test
+    void get()
+    {
+        assertParity(RepositoryQuery::get);
+        assertParity(query -> query.skip(2).limit(3).get());
+        assertParity(query -> query.getPage(2, 2));
+        assertParity(query -> query.getFirst(2));
+        assertParity(query -> query.getAt(3));
+        assertParity(query -> query.getAt(100));
+        assertParity(RepositoryQuery::getKeys);
+        assertParity(query -> query.getAttributes("email", String.class));
+    }
+
+    @Test
+    void chunk()
+    {
+        assertParity(query -> chunkKeys(query.asc("name")));
+        assertParity(query -> chunkKeys(query.skip(3)));
+        assertParity(query -> chunkKeys(query.desc("name").skip(100)));
+    }
+
+    private List<Integer> chunkKeys(RepositoryQuery<Integer, User> query)
+    {
+        List<Integer> keys = new ArrayList<>();
+        query.chunk(2, (chunk, stopper) -> chunk.getResults().forEach(user -> keys.add(user.getId())));
+        return keys;
+    }
+
+    @Test
+    void operations()
+    {
+        assertParity(query -> query.eq("name", "collection1").get());
+        assertParity(query -> query.not("name", "collection1").get());
+        assertParity(query -> query.in("name", "collection1", "collection2").get());
+        assertParity(query -> query.in("name", new ArrayList<>()).get());
+        assertParity(query -> query.notIn("name", "collection1", "collection2").get());
+        assertParity(query -> query.notIn("name", new ArrayList<>()).get());
+        assertParity(query -> query.like("email", "ion3@").get());
+        assertParity(query -> query.like("email", "collection_@").get());
+        assertParity(query -> query.notLike("email", "ion3@").get());
+        assertParity(query -> query.eq("name", null).get());
+        assertParity(query -> query.between("name", "collection0", "collection1").get());
+        assertParity(query -> query.outside("name", "collection0", "collection1").get());
+        assertParity(query -> query.gtoe("name", "collection1").lt("name", "collection2").get());
+    }
+
+    @Test
+    void orders()
+    {
+        assertParity(query -> query.desc("name").asc("email").get());
+        assertParity(query -> query.asc("name").desc("id").skip(1).limit(4).get());
+        assertParity(query -> query.desc("email").getPageAfter(3, null));
+        assertParity(query -> {
+            List<User> results = new ArrayList<>();
+            Cursor     cursor  = Cursor.first();
+            do {
+                CursorPage<User> page = query.copy().desc("name").getPageAfter(2, cursor);
+                results.addAll(page.getResults());
+                cursor = page.getNext();
+            } while (cursor != null);
+
+            return results;
+        });
+    }
+
+    @Test
+    void delete()
+    {
+        assertParity(query -> Arrays.asList(query.copy().eq("name", "collection1").delete(), query.get()));
+        assertParity(query -> Arrays.asList(query.copy().asc("name").desc("id").limit(2).delete(), query.get()));
+        assertParity(query -> Arrays.asList(query.copy().in("name", new ArrayList<>()).delete(), query.get()));
+    }
+
+    @Test
+    void update()
+    {
+        assertParity(query -> Arrays.asList(query.copy().eq("name", "collection1")
+                                                 .update(Collections.singletonMap("name", "updated")),
+                                            query.eq("name", "updated").get()));
+        assertParity(query -> Arrays.asList(query.copy().desc("email").skip(1).limit(3)
+                                                 .update(Collections.singletonMap("name", "updated")),
+                                            query.eq("name", "updated").get()));
+    }
+
+    @Test
+    void aggregates()
+    {
+        assertParity(RepositoryQuery::count);
+        assertParity(query -> query.eq("name", "collection2").count());
+        assertParity(RepositoryQuery::exists);
+        assertParity(query -> query.eq("name", "unknown").exists());
+        assertParity(query -> query.max("email", String.class));
+        assertParity(query -> query.min("name", String.class));
+        assertParity(query -> query.countDistinct("name"));
+        assertParity(query -> query.eq("name", "collection1").groupBy("name", String.class));
+        assertParity(query -> query.like("email", "collection").groupBy("name", String.class));
+        assertParity(query -> query.like("email", "collection").groupBy("name",
+                                                                        String.class,
+                                                                        Aggregate.MAX,
+                                                                        "email",
+                                                                        String.class));
+    }
+
+    @Test
+    void project()
+    {
+        assertParity(query -> query.desc("name").asc("email").project("name", "email"));
+        assertParity(query -> query.project("email"));
+    }
+
+    @Test
+    void numericAggregates()
+    {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            User user = new User("user" + i, "user" + i + "@email.com", "password");
+            user.setId(i);
+            users.add(user);
+        }
+
+        RepositoryQuery<Integer, User> query = new CollectionRepositoryQuery<>(users, "id");
+        assertEquals(Long.valueOf(10), query.sum("id", Long.class));
+        assertEquals(2.5, query.avg("id"), 0.0001);
+        assertEquals(Integer.valueOf(4), query.max("id", Integer.class));
+        assertNull(query.copy().gt("id", 4L).sum("id", Long.class));
+        assertTrue(query.contains(2));
+        assertFalse(query.contains(5));
+        assertEquals(Arrays.asList(2, 3), query.copy().in("id", 2L, 3L).getKeys());
+    }
+}
@@ -0,0 +1,101 @@
+package com.tvestergaard.start.data.repositories.base.queries;
+
+import com.tvestergaard.start.JpaTestConnection;
+import com.tvestergaard.start.data.entities.User;
+import com.tvestergaard.start.data.repositories.JpaUserRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class JpaRepositoryQueryAsyncTest
+{
+
+    private static JpaTestConnection connection;
+    private static List<Integer>     ids = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp()
+    {
+        // The asynchronous queries use their own entity manager, so the data must be committed.
+        connection = new JpaTestConnection(emf -> {});
+        try (JpaUserRepository repository = new JpaUserRepository(connection.getEntityManagerFactory())) {
+            repository.begin();
+            for (int i = 1; i <= 5; i++)
+                ids.add(repository.createUser("async" + i, "async" + i + "@email.com", "password").getId());
+            repository.commit();
+        }
+    }
+
+    @AfterAll
+    static void tearDown()
+    {
+        connection.close();
+    }
+
+    @Test
+    void getAsync() throws Exception
+    {
+        try (JpaUserRepository repository = new JpaUserRepository(connection.getEntityManagerFactory())) {
+            List<User> users = repository.query().getAsync().get();
+            assertEquals(ids, users.stream().map(User::getId).collect(Collectors.toList()));
+            for (User user : users)
+                assertFalse(repository.getEntityManager().contains(user));
+        }
+    }
+
+    @Test
+    void shutdownAsyncExecutor() throws Exception
+    {
+        // The executor is replaced when shut down, so later asynchronous queries are still executed.
+        JpaRepositoryQuery.shutdownAsyncExecutor();
+        try (JpaUserRepository repository = new JpaUserRepository(connection.getEntityManagerFactory())) {
+            assertEquals(ids.size(), (long) repository.query().countAsync().get());
+        }
+    }
+
+    @Test
+    void pageAndCountConcurrently() throws Exception
+    {
+        try (JpaUserRepository repository = new JpaUserRepository(connection.getEntityManagerFactory())) {
+            CompletableFuture<List<User>> page  = repository.query().getPageAsync(2, 2);
+            CompletableFuture<Long>       count = repository.query().countAsync();
+
+            assertEquals(ids.subList(2, 4), page.get().stream().map(User::getId).collect(Collectors.toList()));
+            assertEquals(Long.valueOf(ids.size()), count.get());
+        }
+    }
+
+    @Test
+    void getPageWithTotalConcurrently()
+    {
+        try (JpaUserRepository repository = new JpaUserRepository(connection.getEntityManagerFactory())) {
+            Page<User> first = repository.query().getPageWithTotal(2, 1, true);
+            assertEquals(ids.subList(0, 2), first.getResults().stream().map(User::getId).collect(Collectors.toList()));
+            assertEquals(ids.size(), first.getTotal());
+
+            Page<User> last = repository.query().getPageWithTotal(2, 3, true);
+            assertEquals(ids.subList(4, 5), last.getResults().stream().map(User::getId).collect(Collectors.toList()));
+            assertEquals(ids.size(), last.getTotal());
+        }
+    }
+
+    @Test
+    void snapshotIsTakenWhenCalled() throws Exception
+    {
+        try (JpaUserRepository repository = new JpaUserRepository(connection.getEntityManagerFactory())) {
+            RepositoryQuery<Integer, User> query = repository.query().eq("id", ids.get(0));
+            CompletableFuture<Long>        count = query.countAsync();
+            query.eq("id", ids.get(1));
+
+            assertEquals(Long.valueOf(1), count.get());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.tvestergaard.start.data.repositories.base.queries;
+
+import com.tvestergaard.start.data.entities.User;
+import com.tvestergaard.start.data.repositories.base.queries.tree.Conditional;
+import com.tvestergaard.start.data.repositories.base.queries.tree.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryOptimizerTest
+{
+
+    private static Conditional op(String attribute, Operation.Type type, Object... arguments)
+    {
+        return Conditional.op(new Operation(attribute, type, arguments));
+    }
+
+    private static Conditional eq(String attribute, Object value)
+    {
+        return op(attribute, Operation.Type.EQ, value);
+    }
+
+    @Test
+    void foldsEmptyIn()
+    {
+        List<Conditional> optimized = QueryOptimizer.optimize(Arrays.asList(
+                eq("name", "a"),
+                op("id", Operation.Type.IN, new ArrayList<>())));
+
+        assertTrue(QueryOptimizer.isFalse(optimized));
+    }
+
+    @Test
+    void prunesEmptyNotIn()
+    {
+        Conditional       name      = eq("name", "a");
+        List<Conditional> optimized = QueryOptimizer.optimize(Arrays.asList(
+                name,
+                op("id", Operation.Type.NOT_IN, new ArrayList<>())));
+
+        assertEquals(Collections.singletonList(name), optimized);
+    }
+
+    @Test
+    void foldsNestedConstants()
+    {
+        Conditional name = eq("name", "a");
+        Conditional or   = Conditional.or(op("id", Operation.Type.IN, new ArrayList<>()), name);
+        assertEquals(Collections.singletonList(name), QueryOptimizer.optimize(Collections.singletonList(or)));
+
+        Conditional alwaysTrue = Conditional.or(op("id", Operation.Type.NOT_IN, new ArrayList<>()), name);
+        assertEquals(Collections.emptyList(), QueryOptimizer.optimize(Collections.singletonList(alwaysTrue)));
+
+        Conditional alwaysFalse = Conditional.and(name, op("id", Operation.Type.IN, new ArrayList<>()));
+        assertTrue(QueryOptimizer.isFalse(QueryOptimizer.optimize(Collections.singletonList(alwaysFalse))));
+    }
+
+    @Test
+    void flattensAnd()
+    {
+        Conditional a = eq("a", 1);
+        Conditional b = eq("b", 2);
+        Conditional c = eq("c", 3);
+
+        List<Conditional> optimized = QueryOptimizer.optimize(Collections.singletonList(
+                Conditional.and(Conditional.and(a, b), c)));
+
+        assertEquals(Arrays.asList(a, b, c), optimized);
+    }
+
+    @Test
+    void mergesEqIntoIn()
+    {
+        Conditional other = eq("name", "a");
+        Conditional or = Conditional.or(Conditional.or(eq("id", 1), other),
+                                        Conditional.or(eq("id", 2), op("id", Operation.Type.IN, Arrays.asList(2, 3))));
+
+        List<Conditional> optimized = QueryOptimizer.optimize(Collections.singletonList(or));
+        assertEquals(1, optimized.size());
+
+        Conditional result = optimized.get(0);
+        assertEquals(Conditional.Type.OR, result.type);
+        assertEquals(Operation.Type.IN, result.left.operation.type);
+        assertEquals("id", result.left.operation.attribute);
+        assertEquals(Arrays.asList(1, 2, 3), result.left.operation.arguments[0]);
+        assertSame(other, result.right);
+    }
+
+    @Test
+    void alwaysEmptyQueryIsNotExecuted()
+    {
+        // The query has no entity manager, so any attempt to execute it fails
+        RepositoryQuery<Integer, User> query = new JpaRepositoryQuery<>(null, Integer.class, "id", User.class);
+        query.eq("name", "a").in("id");
+
+        assertEquals(Collections.emptyList(), query.get());
+        assertEquals(0, query.count());
+        assertFalse(query.exists());
+        assertNull(query.getFirst());
+        assertNull(query.max("id", Integer.class));
+        assertTrue(query.groupBy("name", String.class).isEmpty());
+        assertFalse(query.getPageAfter(10, null).hasNext());
+    }
+}
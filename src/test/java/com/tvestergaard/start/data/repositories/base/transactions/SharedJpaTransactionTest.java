@@ -0,0 +1,81 @@
+package com.tvestergaard.start.data.repositories.base.transactions;
+
+import com.tvestergaard.start.JpaTestConnection;
+import com.tvestergaard.start.data.entities.User;
+import com.tvestergaard.start.data.repositories.JpaUserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedJpaTransactionTest
+{
+
+    private JpaTestConnection connection;
+
+    @BeforeEach
+    void setUp()
+    {
+        connection = new JpaTestConnection(emf -> {});
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        connection.close();
+    }
+
+    @Test
+    void closeKeepsEntityManagerOpen()
+    {
+        SharedJpaTransaction transaction = new SharedJpaTransaction(connection.getEntityManagerFactory());
+
+        User created;
+        try (JpaUserRepository repository = new JpaUserRepository(transaction)) {
+            repository.begin();
+            created = repository.createUser("shared", "shared@email.com", "password");
+            repository.commit();
+        }
+
+        assertTrue(transaction.getEntityManager().isOpen());
+        try (JpaUserRepository repository = new JpaUserRepository(transaction)) {
+            assertSame(created, repository.get(created.getId()));
+        }
+
+        transaction.end(true);
+        assertFalse(transaction.getEntityManager().isOpen());
+    }
+
+    @Test
+    void endCommits()
+    {
+        SharedJpaTransaction transaction = new SharedJpaTransaction(connection.getEntityManagerFactory());
+        transaction.begin();
+        Integer id = new JpaUserRepository(transaction).createUser("shared", "shared@email.com", "password").getId();
+        transaction.end(true);
+
+        try (JpaUserRepository repository = new JpaUserRepository(connection.getEntityManagerFactory())) {
+            assertNotNull(repository.get(id));
+        }
+    }
+
+    @Test
+    void endRollsBack()
+    {
+        SharedJpaTransaction transaction = new SharedJpaTransaction(connection.getEntityManagerFactory());
+        transaction.begin();
+        Integer id = new JpaUserRepository(transaction).createUser("shared", "shared@email.com", "password").getId();
+        transaction.end(false);
+
+        try (JpaUserRepository repository = new JpaUserRepository(connection.getEntityManagerFactory())) {
+            assertNull(repository.get(id));
+            assertEquals(0, repository.query().eq("email", "shared@email.com").count());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.tvestergaard.start.logic;
+
+import com.tvestergaard.start.JpaTestConnection;
+import com.tvestergaard.start.data.repositories.JpaUserRepository;
+import com.tvestergaard.start.data.repositories.UserRepository;
+import com.tvestergaard.start.data.repositories.base.transactions.JpaTransaction;
+import com.tvestergaard.start.data.repositories.base.transactions.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.PersistenceException;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserFacadeTest
+{
+
+    private JpaTestConnection          connection;
+    private UserFacade<JpaTransaction> facade;
+
+    @BeforeEach
+    void setUp()
+    {
+        // The facade commits its transactions, so every test uses its own database.
+        connection = new JpaTestConnection(emf -> {});
+        facade = new UserFacade<>(() -> new JpaTransaction(connection.getEntityManagerFactory()),
+                                  JpaUserRepository::new);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        connection.close();
+    }
+
+    @Test
+    void createUser() throws Exception
+    {
+        facade.loadRegisteredEmails(0.01);
+        assertEquals("new@email.com", facade.createUser("new", "new@email.com", "password").getEmail());
+        assertThrows(ResourceConflictException.class, () -> facade.createUser("new", "new@email.com", "password"));
+    }
+
+    @Test
+    void createUserWithUnloadedEmail() throws Exception
+    {
+        facade.loadRegisteredEmails(0.01);
+        try (JpaUserRepository repository = new JpaUserRepository(connection.getEntityManagerFactory())) {
+            repository.begin();
+            repository.createUser("other", "other@email.com", "password");
+            repository.commit();
+        }
+
+        // The email is missing from the loaded emails, so the unique constraint detects the conflict.
+        assertThrows(ResourceConflictException.class, () -> facade.createUser("other", "other@email.com", "password"));
+        assertThrows(ResourceConflictException.class, () -> facade.createUser("other", "other@email.com", "password"));
+    }
+
+    @Test
+    void createUserRethrowsOtherViolations()
+    {
+        // Only the violation of the unique constraint on the email is reported as a conflict.
+        PersistenceException violation = new PersistenceException(new ConstraintViolationException(
+                "violation", new SQLException("violation", "23505"), "other_constraint"));
+        UserRepository repository = mock(UserRepository.class);
+        when(repository.createUser(any(), any(), any())).thenThrow(violation);
+
+        UserFacade<Transaction> facade = new UserFacade<>(() -> mock(Transaction.class), transaction -> repository);
+        assertSame(violation, assertThrows(PersistenceException.class,
+                                           () -> facade.createUser("name", "email@email.com", "password")));
+    }
+
+    @Test
+    void withSharesRegisteredEmails() throws Exception
+    {
+        UserRepository repository = mock(UserRepository.class);
+        UserFacade<Transaction> facade = new UserFacade<>(() -> mock(Transaction.class), transaction -> repository);
+        facade.loadRegisteredEmails(0.01);
+
+        // The emails loaded by the facade are used by the facades created from it, so the new email is not looked up.
+        facade.with(() -> mock(Transaction.class), transaction -> repository)
+              .createUser("name", "new@email.com", "password");
+        verify(repository, never()).getByEmail(any());
+    }
+}
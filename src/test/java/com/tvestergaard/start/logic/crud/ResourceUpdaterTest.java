@@ -64,6 +64,17 @@ class ResourceUpdaterTest
         assertEquals("name4", newRetriever().get(resource1.getId()).getName());
     }
 
+    @Test
+    void updateKWithoutChanges() throws Exception
+    {
+        CrudTestResource updated = updater.update(resource1.getId(), () -> new CrudTestResource("name1", null));
+
+        assertEquals(resource1.getId(), updated.getId());
+        assertEquals("name1", updated.getName());
+        assertEquals("email1", updated.getEmail());
+        assertEquals(resource1, newRetriever().get(resource1.getId()));
+    }
+
     @Test
     void updateKThrowsResourceNotFoundException()
     {
@@ -0,0 +1,29 @@
+package com.tvestergaard.start.rest;
+
+import com.tvestergaard.start.JpaTestConnection;
+import com.tvestergaard.start.data.repositories.JpaUserRepository;
+import com.tvestergaard.start.data.repositories.base.queries.JpaRepositoryQuery;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JpaLifecycleListenerTest
+{
+
+    @Test
+    void warmup()
+    {
+        long count;
+        try (JpaUserRepository users = new JpaUserRepository(JpaTestConnection.create())) {
+            count = users.count();
+        }
+
+        JpaLifecycleListener.warmup(JpaTestConnection.create());
+
+        assertTrue(JpaRepositoryQuery.getCompiledQueryCount() > 0);
+        try (JpaUserRepository users = new JpaUserRepository(JpaTestConnection.create())) {
+            assertEquals(count, users.count());
+        }
+    }
+}
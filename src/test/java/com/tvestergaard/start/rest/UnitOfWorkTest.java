@@ -0,0 +1,104 @@
+package com.tvestergaard.start.rest;
+
+import com.tvestergaard.start.JpaTestConnection;
+import com.tvestergaard.start.data.repositories.JpaUserRepository;
+import com.tvestergaard.start.data.repositories.base.transactions.JpaTransaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UnitOfWorkTest
+{
+
+    private JpaTestConnection connection;
+
+    @BeforeEach
+    void setUp()
+    {
+        // The unit of work commits its transaction, so every test uses its own database.
+        connection = new JpaTestConnection(emf -> {});
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        connection.close();
+    }
+
+    private long count()
+    {
+        try (JpaUserRepository repository = new JpaUserRepository(connection.getEntityManagerFactory())) {
+            return repository.count();
+        }
+    }
+
+    private void createUser(UnitOfWork unitOfWork, String name)
+    {
+        try (JpaUserRepository repository = new JpaUserRepository(unitOfWork.transaction())) {
+            repository.begin();
+            repository.createUser(name, name + "@email.com", "password");
+        }
+    }
+
+    @Test
+    void transaction()
+    {
+        UnitOfWork     unitOfWork  = new UnitOfWork(connection.getEntityManagerFactory());
+        JpaTransaction transaction = unitOfWork.transaction();
+        assertSame(transaction, unitOfWork.transaction());
+
+        unitOfWork.end(false);
+        assertFalse(transaction.getEntityManager().isOpen());
+        assertNotSame(transaction, unitOfWork.transaction());
+        unitOfWork.end(false);
+    }
+
+    @Test
+    void endCommits()
+    {
+        long       count      = count();
+        UnitOfWork unitOfWork = new UnitOfWork(connection.getEntityManagerFactory());
+        createUser(unitOfWork, "committed");
+        unitOfWork.end(true);
+        unitOfWork.end(false);
+
+        assertEquals(count + 1, count());
+    }
+
+    @Test
+    void endRollsBack()
+    {
+        long       count      = count();
+        UnitOfWork unitOfWork = new UnitOfWork(connection.getEntityManagerFactory());
+        createUser(unitOfWork, "rolled-back");
+        unitOfWork.end(false);
+
+        assertEquals(count, count());
+    }
+
+    @Test
+    void readOnly()
+    {
+        UnitOfWork readOnly = new UnitOfWork(connection.getEntityManagerFactory(), true);
+        try (JpaUserRepository repository = new JpaUserRepository(readOnly.transaction())) {
+            assertTrue(repository.isReadOnly());
+        } finally {
+            readOnly.end(false);
+        }
+
+        // The repositories share the transaction, so their read-only mode is decided by the unit of work.
+        UnitOfWork readWrite = new UnitOfWork(connection.getEntityManagerFactory());
+        try (JpaUserRepository repository = new JpaUserRepository(readWrite.transaction())) {
+            repository.setReadOnly(true);
+            assertFalse(repository.isReadOnly());
+        } finally {
+            readWrite.end(false);
+        }
+    }
+}